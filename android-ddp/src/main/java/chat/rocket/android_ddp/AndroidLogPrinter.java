@@ -0,0 +1,19 @@
+package chat.rocket.android_ddp;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+/**
+ * Prints the logs of ddp-core to logcat.
+ * install with DDPLog.setPrinter(new AndroidLogPrinter()).
+ */
+public class AndroidLogPrinter implements DDPLog.Printer {
+  @Override
+  public void print(int priority, String tag, @Nullable String message,
+                    @Nullable Throwable throwable) {
+    if (throwable != null) {
+      message = message + '\n' + Log.getStackTraceString(throwable);
+    }
+    Log.println(priority, tag, message);
+  }
+}
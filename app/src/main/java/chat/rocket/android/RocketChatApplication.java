@@ -10,6 +10,8 @@ import java.util.List;
 import chat.rocket.android.model.ServerConfig;
 import chat.rocket.android.realm_helper.RealmStore;
 import chat.rocket.android.wrappers.InstabugWrapper;
+import chat.rocket.android_ddp.AndroidLogPrinter;
+import chat.rocket.android_ddp.DDPLog;
 
 /**
  * Customized Application-class for Rocket.Chat
@@ -19,6 +21,8 @@ public class RocketChatApplication extends MultiDexApplication {
   public void onCreate() {
     super.onCreate();
 
+    DDPLog.setPrinter(new AndroidLogPrinter());
+
     Realm.init(this);
     Realm.setDefaultConfiguration(
         new RealmConfiguration.Builder().deleteRealmIfMigrationNeeded().build());
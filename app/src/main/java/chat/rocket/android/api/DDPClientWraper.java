@@ -3,7 +3,12 @@ package chat.rocket.android.api;
 import android.support.annotation.Nullable;
 import org.json.JSONArray;
 import org.json.JSONException;
+import org.json.JSONObject;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.UUID;
 import bolts.Task;
 import chat.rocket.android.helper.OkHttpHelper;
@@ -11,6 +16,7 @@ import chat.rocket.android.helper.TextUtils;
 import chat.rocket.android.log.RCLog;
 import chat.rocket.android_ddp.DDPClient;
 import chat.rocket.android_ddp.DDPClientCallback;
+import chat.rocket.android_ddp.DDPMetrics;
 import chat.rocket.android_ddp.DDPSubscription;
 import rx.Observable;
 
@@ -18,8 +24,15 @@ import rx.Observable;
  * DDP client wrapper.
  */
 public class DDPClientWraper {
+  // keep the subscription for a while after the last consumer is gone,
+  // so that switching rooms back and forth doesn't churn sub/unsub.
+  private static final long UNSUBSCRIBE_GRACE_MS = 5000;
+
   private final DDPClient ddpClient;
   private final String hostname;
+  // shared subscriptions, keyed by name and canonical params, and by subscription id.
+  private final HashMap<String, SharedSubscription> subscriptionsByKey = new HashMap<>();
+  private final HashMap<String, SharedSubscription> subscriptionsById = new HashMap<>();
 
   private DDPClientWraper(String hostname) {
     ddpClient = new DDPClient(OkHttpHelper.getClientForWebSocket());
@@ -47,6 +60,20 @@ public class DDPClientWraper {
     return ddpClient.isConnected();
   }
 
+  /**
+   * Returns whether DDP client is trying to reconnect after the connection is lost.
+   */
+  public boolean isReconnecting() {
+    return ddpClient.isReconnecting();
+  }
+
+  /**
+   * Returns the metrics of RPC latency, subscriptions and inbound traffic.
+   */
+  public DDPMetrics getMetrics() {
+    return ddpClient.getMetrics();
+  }
+
   /**
    * close connection.
    */
@@ -56,19 +83,129 @@ public class DDPClientWraper {
 
   /**
    * Subscribe with DDP client.
+   * The subscription is shared with the other consumers subscribing with the same name and params,
+   * and every consumer should call unsubscribe() once with the id of the result.
    */
   public Task<DDPSubscription.Ready> subscribe(final String name, JSONArray param) {
-    final String subscriptionId = UUID.randomUUID().toString();
-    RCLog.d("sub:[%s]> %s(%s)", subscriptionId, name, param);
-    return ddpClient.sub(subscriptionId, name, param);
+    final String key = name + ":" + canonicalize(param);
+    synchronized (this) {
+      SharedSubscription shared = subscriptionsByKey.get(key);
+      if (shared != null) {
+        shared.refCount++;
+        RCLog.d("sub:[%s]> %s(%s) shared, refCount=%d", shared.id, name, param, shared.refCount);
+        return shared.ready;
+      }
+
+      final SharedSubscription subscription =
+          new SharedSubscription(key, UUID.randomUUID().toString());
+      subscriptionsByKey.put(key, subscription);
+      subscriptionsById.put(subscription.id, subscription);
+
+      RCLog.d("sub:[%s]> %s(%s)", subscription.id, name, param);
+      subscription.ready = ddpClient.sub(subscription.id, name, param).continueWithTask(task -> {
+        if (task.isFaulted() || task.isCancelled()) {
+          // don't share the failed subscription with the consumers coming later.
+          removeSubscription(subscription);
+        }
+        return task;
+      });
+      return subscription.ready;
+    }
   }
 
   /**
-   * Unsubscribe with DDP client.
+   * Release the subscription subscribed with subscribe().
+   * "unsub" is sent after the grace period, if no consumer subscribes it again.
+   * Nothing is sent for an unknown id, e.g. of a failed subscription, which the server doesn't have.
    */
-  public Task<DDPSubscription.NoSub> unsubscribe(final String subscriptionId) {
+  public Task<Void> unsubscribe(final String subscriptionId) {
+    final SharedSubscription subscription;
+    final int releaseGeneration;
+    synchronized (this) {
+      subscription = subscriptionsById.get(subscriptionId);
+      if (subscription == null) {
+        // every subscription is in the registry until its "unsub" is sent.
+        RCLog.d("unsub:[%s]> unknown or already released", subscriptionId);
+        return Task.forResult(null);
+      }
+      subscription.refCount--;
+      if (subscription.refCount > 0) {
+        RCLog.d("unsub:[%s]> still shared, refCount=%d", subscriptionId, subscription.refCount);
+        return Task.forResult(null);
+      }
+      releaseGeneration = ++subscription.releaseGeneration;
+    }
+
+    RCLog.d("unsub:[%s]> in %d ms", subscriptionId, UNSUBSCRIBE_GRACE_MS);
+    Task.delay(UNSUBSCRIBE_GRACE_MS).continueWithTask(_task -> {
+      synchronized (this) {
+        if (subscription.refCount > 0 || subscriptionsById.get(subscriptionId) != subscription
+            || subscription.releaseGeneration != releaseGeneration) {
+          // subscribed again during the grace period. only the latest release unsubscribes.
+          return null;
+        }
+      }
+      removeSubscription(subscription);
+      return unsubscribeImmediately(subscriptionId);
+    }).continueWith(task -> {
+      if (task.isFaulted()) {
+        RCLog.w(task.getError(), "failed to unsubscribe %s", subscriptionId);
+      }
+      return null;
+    });
+    return Task.forResult(null);
+  }
+
+  private Task<Void> unsubscribeImmediately(String subscriptionId) {
     RCLog.d("unsub:[%s]>", subscriptionId);
-    return ddpClient.unsub(subscriptionId);
+    return ddpClient.unsub(subscriptionId).makeVoid();
+  }
+
+  private synchronized void removeSubscription(SharedSubscription subscription) {
+    if (subscriptionsByKey.get(subscription.key) == subscription) {
+      subscriptionsByKey.remove(subscription.key);
+    }
+    if (subscriptionsById.get(subscription.id) == subscription) {
+      subscriptionsById.remove(subscription.id);
+    }
+  }
+
+  /**
+   * returns the JSON text of the value with sorted object keys,
+   * so that the same params built in different orders have the same key.
+   */
+  private static String canonicalize(@Nullable Object value) {
+    if (value instanceof JSONObject) {
+      JSONObject object = (JSONObject) value;
+      ArrayList<String> keys = new ArrayList<>(object.length());
+      Iterator<String> iterator = object.keys();
+      while (iterator.hasNext()) {
+        keys.add(iterator.next());
+      }
+      Collections.sort(keys);
+
+      StringBuilder builder = new StringBuilder("{");
+      for (String key : keys) {
+        if (builder.length() > 1) {
+          builder.append(',');
+        }
+        builder.append(JSONObject.quote(key)).append(':').append(canonicalize(object.opt(key)));
+      }
+      return builder.append('}').toString();
+    } else if (value instanceof JSONArray) {
+      JSONArray array = (JSONArray) value;
+      StringBuilder builder = new StringBuilder("[");
+      for (int i = 0; i < array.length(); i++) {
+        if (i > 0) {
+          builder.append(',');
+        }
+        builder.append(canonicalize(array.opt(i)));
+      }
+      return builder.append(']').toString();
+    } else if (value instanceof String) {
+      return JSONObject.quote((String) value);
+    }
+    return String.valueOf(value);
   }
 
   /**
@@ -78,6 +215,13 @@ public class DDPClientWraper {
     return ddpClient.getSubscriptionCallback();
   }
 
+  /**
+   * Returns Observable for handling the document events of the collection.
+   */
+  public Observable<DDPSubscription.DocEvent> getDocEventCallback(String collection) {
+    return ddpClient.getDocEventCallback(collection);
+  }
+
   private String generateId(String method) {
     return method + "-" + UUID.randomUUID().toString().replace("-", "");
   }
@@ -87,30 +231,45 @@ public class DDPClientWraper {
    */
   public Task<DDPClientCallback.RPC> rpc(String methodCallId, String methodName, String params,
                                          long timeoutMs) {
-    RCLog.d("rpc:[%s]> %s(%s) timeout=%d", methodCallId, methodName, params, timeoutMs);
     if (TextUtils.isEmpty(params)) {
-      return ddpClient.rpc(methodName, null, methodCallId, timeoutMs).continueWithTask(task -> {
-        if (task.isFaulted()) {
-          RCLog.d("rpc:[%s]< error = %s", methodCallId, task.getError());
-        } else {
-          RCLog.d("rpc:[%s]< result = %s", methodCallId, task.getResult().result);
-        }
-        return task;
-      });
+      return rpc(methodCallId, methodName, (JSONArray) null, timeoutMs);
     }
 
     try {
-      return ddpClient.rpc(methodName, new JSONArray(params), methodCallId, timeoutMs)
-          .continueWithTask(task -> {
-            if (task.isFaulted()) {
-              RCLog.d("rpc:[%s]< error = %s", methodCallId, task.getError());
-            } else {
-              RCLog.d("rpc:[%s]< result = %s", methodCallId, task.getResult().result);
-            }
-            return task;
-          });
+      return rpc(methodCallId, methodName, new JSONArray(params), timeoutMs);
     } catch (JSONException exception) {
       return Task.forError(exception);
     }
   }
+
+  /**
+   * Execute RPC. params are streamed into the frame as they are, without the string round trip.
+   */
+  public Task<DDPClientCallback.RPC> rpc(String methodCallId, String methodName,
+                                         @Nullable JSONArray params, long timeoutMs) {
+    RCLog.d("rpc:[%s]> %s(%s) timeout=%d", methodCallId, methodName, params, timeoutMs);
+    return ddpClient.rpc(methodName, params, methodCallId, timeoutMs).continueWithTask(task -> {
+      if (task.isFaulted()) {
+        RCLog.d("rpc:[%s]< error = %s", methodCallId, task.getError());
+      } else {
+        RCLog.d("rpc:[%s]< result = %s", methodCallId, task.getResult().result);
+      }
+      return task;
+    });
+  }
+
+  private static class SharedSubscription {
+    final String key;
+    final String id;
+    int refCount = 1;
+    // incremented on every release to refCount 0, so that only the grace period of
+    // the latest release unsubscribes.
+    int releaseGeneration;
+    Task<DDPSubscription.Ready> ready;
+
+    SharedSubscription(String key, String id) {
+      this.key = key;
+      this.id = id;
+    }
+  }
 }
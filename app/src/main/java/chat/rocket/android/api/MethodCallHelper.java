@@ -1,6 +1,7 @@
 package chat.rocket.android.api;
 
 import android.content.Context;
+import android.support.annotation.Nullable;
 import android.util.Patterns;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -13,13 +14,18 @@ import chat.rocket.android.helper.CheckSum;
 import chat.rocket.android.helper.TextUtils;
 import chat.rocket.android.model.SyncState;
 import chat.rocket.android.model.ddp.Message;
+import chat.rocket.android.model.ddp.MessageCodec;
 import chat.rocket.android.model.ddp.PublicSetting;
+import chat.rocket.android.model.ddp.PublicSettingCodec;
 import chat.rocket.android.model.ddp.RoomSubscription;
+import chat.rocket.android.model.ddp.RoomSubscriptionCodec;
 import chat.rocket.android.model.internal.MethodCall;
 import chat.rocket.android.model.internal.Session;
 import chat.rocket.android.realm_helper.RealmHelper;
 import chat.rocket.android.realm_helper.RealmStore;
+import chat.rocket.android.realm_helper.RealmWriter;
 import chat.rocket.android_ddp.DDPClientCallback;
+import chat.rocket.android_ddp.EJsonReader;
 import hugo.weaving.DebugLog;
 
 /**
@@ -33,6 +39,11 @@ public class MethodCallHelper {
       task -> Task.forResult(new JSONObject(task.getResult()));
   protected static final Continuation<String, Task<JSONArray>> CONVERT_TO_JSON_ARRAY =
       task -> Task.forResult(new JSONArray(task.getResult()));
+  // same as above, but EJSON values (e.g. {"$date": 1480377601}) are decoded on parsing.
+  protected static final Continuation<String, Task<JSONObject>> DECODE_EJSON_OBJECT =
+      task -> Task.forResult(EJsonReader.parseObject(task.getResult()));
+  protected static final Continuation<String, Task<JSONArray>> DECODE_EJSON_ARRAY =
+      task -> Task.forResult(EJsonReader.parseArray(task.getResult()));
   protected final Context context;
   protected final RealmHelper realmHelper;
   protected final DDPClientWraper ddpClient;
@@ -64,12 +75,15 @@ public class MethodCallHelper {
   }
 
   @DebugLog
-  private Task<String> executeMethodCall(String methodName, String param, long timeout) {
+  private Task<String> executeMethodCall(String methodName, @Nullable JSONArray params,
+                                         long timeout) {
     if (ddpClient != null) {
-      return ddpClient.rpc(UUID.randomUUID().toString(), methodName, param, timeout)
+      return ddpClient.rpc(UUID.randomUUID().toString(), methodName, params, timeout)
           .onSuccessTask(task -> Task.forResult(task.getResult().result));
     } else {
-      return MethodCall.execute(context, realmHelper, methodName, param, timeout);
+      // queued in Realm, so it should be serialized here.
+      return MethodCall.execute(context, realmHelper, methodName,
+          params != null ? params.toString() : null, timeout);
     }
   }
 
@@ -104,9 +118,8 @@ public class MethodCallHelper {
 
   protected final Task<String> call(String methodName, long timeout, ParamBuilder paramBuilder) {
     try {
-      final JSONArray params = paramBuilder.buildParam();
-      return injectErrorHandler(executeMethodCall(methodName,
-          params != null ? params.toString() : null, timeout));
+      return injectErrorHandler(
+          executeMethodCall(methodName, paramBuilder.buildParam(), timeout));
     } catch (JSONException exception) {
       return Task.forError(exception);
     }
@@ -212,23 +225,14 @@ public class MethodCallHelper {
    * request "subscriptions/get".
    */
   public Task<Void> getRoomSubscriptions() {
-    return call("subscriptions/get", TIMEOUT_MS).onSuccessTask(CONVERT_TO_JSON_ARRAY)
+    return call("subscriptions/get", TIMEOUT_MS).onSuccessTask(DECODE_EJSON_ARRAY)
         .onSuccessTask(task -> {
           final JSONArray result = task.getResult();
-          try {
-            for (int i = 0; i < result.length(); i++) {
-              RoomSubscription.customizeJson(result.getJSONObject(i));
-            }
-
-            return realmHelper.executeTransaction(realm -> {
-              realm.delete(RoomSubscription.class);
-              realm.createOrUpdateAllFromJson(
-                  RoomSubscription.class, result);
-              return null;
-            });
-          } catch (JSONException exception) {
-            return Task.forError(exception);
-          }
+          return realmHelper.executeTransaction(realm -> {
+            realm.delete(RoomSubscription.class);
+            RoomSubscriptionCodec.INSTANCE.upsertAll(realm, result);
+            return null;
+          }, RealmWriter.PRIORITY_SYNC);
         });
   }
 
@@ -242,13 +246,10 @@ public class MethodCallHelper {
         .put(timestamp > 0 ? new JSONObject().put("$date", timestamp) : JSONObject.NULL)
         .put(count)
         .put(lastSeen > 0 ? new JSONObject().put("$date", lastSeen) : JSONObject.NULL)
-    ).onSuccessTask(CONVERT_TO_JSON_OBJECT)
+    ).onSuccessTask(DECODE_EJSON_OBJECT)
         .onSuccessTask(task -> {
           JSONObject result = task.getResult();
           final JSONArray messages = result.getJSONArray("messages");
-          for (int i = 0; i < messages.length(); i++) {
-            Message.customizeJson(messages.getJSONObject(i));
-          }
 
           return realmHelper.executeTransaction(realm -> {
             if (timestamp == 0) {
@@ -257,11 +258,31 @@ public class MethodCallHelper {
                   .equalTo("syncstate", SyncState.SYNCED)
                   .findAll().deleteAllFromRealm();
             }
-            if (messages.length() > 0) {
-              realm.createOrUpdateAllFromJson(Message.class, messages);
-            }
+            MessageCodec.INSTANCE.upsertAll(realm, messages);
+            return null;
+          }, RealmWriter.PRIORITY_SYNC).onSuccessTask(_task -> Task.forResult(messages));
+        });
+  }
+
+  /**
+   * Load the messages newer than end in the room, and merge them into the synced ones.
+   */
+  public Task<JSONArray> loadNextMessages(final String roomId, final long end, final int count) {
+    return call("loadNextMessages", TIMEOUT_MS, () -> new JSONArray()
+        .put(roomId)
+        .put(new JSONObject().put("$date", end))
+        .put(count)
+    ).onSuccessTask(DECODE_EJSON_OBJECT)
+        .onSuccessTask(task -> {
+          final JSONArray messages = task.getResult().getJSONArray("messages");
+          if (messages.length() == 0) {
+            return Task.forResult(messages);
+          }
+
+          return realmHelper.executeTransaction(realm -> {
+            MessageCodec.INSTANCE.upsertAll(realm, messages);
             return null;
-          }).onSuccessTask(_task -> Task.forResult(messages));
+          }, RealmWriter.PRIORITY_SYNC).onSuccessTask(_task -> Task.forResult(messages));
         });
   }
 
@@ -323,8 +344,7 @@ public class MethodCallHelper {
    */
   private Task<JSONObject> sendMessage(final JSONObject messageJson) {
     return call("sendMessage", TIMEOUT_MS, () -> new JSONArray().put(messageJson))
-        .onSuccessTask(CONVERT_TO_JSON_OBJECT)
-        .onSuccessTask(task -> Task.forResult(Message.customizeJson(task.getResult())));
+        .onSuccessTask(DECODE_EJSON_OBJECT);
   }
 
   /**
@@ -337,18 +357,14 @@ public class MethodCallHelper {
 
   public Task<Void> getPublicSettings() {
     return call("public-settings/get", TIMEOUT_MS)
-        .onSuccessTask(CONVERT_TO_JSON_ARRAY)
+        .onSuccessTask(DECODE_EJSON_ARRAY)
         .onSuccessTask(task -> {
           final JSONArray settings = task.getResult();
-          for (int i = 0; i < settings.length(); i++) {
-            PublicSetting.customizeJson(settings.getJSONObject(i));
-          }
-
           return realmHelper.executeTransaction(realm -> {
             realm.delete(PublicSetting.class);
-            realm.createOrUpdateAllFromJson(PublicSetting.class, settings);
+            PublicSettingCodec.INSTANCE.upsertAll(realm, settings);
             return null;
-          });
+          }, RealmWriter.PRIORITY_SYNC);
         });
   }
 
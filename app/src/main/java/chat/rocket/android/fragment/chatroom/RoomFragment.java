@@ -52,6 +52,7 @@ public class RoomFragment extends AbstractChatRoomFragment
     implements OnBackPressListener, RealmModelListAdapter.OnItemClickListener<PairedMessage> {
 
   private static final int RC_UPL = 0x12;
+  private static final int MESSAGE_PAGE_SIZE = 50;
 
   private String serverConfigId;
   private RealmHelper realmHelper;
@@ -87,15 +88,15 @@ public class RoomFragment extends AbstractChatRoomFragment
     serverConfigId = args.getString("serverConfigId");
     realmHelper = RealmStore.get(serverConfigId);
     roomId = args.getString("roomId");
-    hostname = RealmStore.getDefault().executeTransactionForRead(realm ->
+    hostname = RealmStore.getDefault().executeProjection(realm ->
         realm.where(ServerConfig.class)
             .equalTo("serverConfigId", serverConfigId)
             .isNotNull("hostname")
-            .findFirst()).getHostname();
-    userId = realmHelper.executeTransactionForRead(realm ->
-        User.queryCurrentUser(realm).findFirst()).get_id();
-    token = realmHelper.executeTransactionForRead(realm ->
-        Session.queryDefaultSession(realm).findFirst()).getToken();
+            .findFirst().getHostname());
+    userId = realmHelper.executeProjection(realm ->
+        User.queryCurrentUser(realm).findFirst().get_id());
+    token = realmHelper.executeProjection(realm ->
+        Session.queryDefaultSession(realm).findFirst().getToken());
     roomObserver = realmHelper
         .createObjectObserver(realm -> realm.where(RoomSubscription.class).equalTo("rid", roomId))
         .setOnUpdateListener(this::onRenderRoom);
@@ -117,11 +118,14 @@ public class RoomFragment extends AbstractChatRoomFragment
   @Override
   protected void onSetupView() {
     RecyclerView listView = (RecyclerView) rootView.findViewById(R.id.recyclerview);
-    MessageListAdapter adapter = (MessageListAdapter) realmHelper.createListAdapter(getContext(),
+    // paged, as the history of the room can be long.
+    MessageListAdapter adapter = (MessageListAdapter) realmHelper.createPagedListAdapter(
+        getContext(),
         realm -> realm.where(Message.class)
             .equalTo("rid", roomId)
             .findAllSorted("ts", Sort.DESCENDING),
-        context -> new MessageListAdapter(context, hostname, userId, token)
+        context -> new MessageListAdapter(context, hostname, userId, token),
+        MESSAGE_PAGE_SIZE
     );
     listView.setAdapter(adapter);
     adapter.setOnItemClickListener(this);
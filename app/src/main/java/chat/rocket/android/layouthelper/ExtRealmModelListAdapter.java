@@ -37,6 +37,12 @@ public abstract class ExtRealmModelListAdapter<T extends RealmObject, VM,
     notifyItemChanged(position + 1);
   }
 
+  @Override
+  protected final int getPositionOffset() {
+    // the header.
+    return 1;
+  }
+
   @Override
   public int getItemViewType(int position) {
     if (position == 0) {
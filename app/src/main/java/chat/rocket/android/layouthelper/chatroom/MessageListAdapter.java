@@ -80,4 +80,14 @@ public class MessageListAdapter
 
     return extMessages;
   }
+
+  @Override
+  protected String getItemKey(PairedMessage model) {
+    return model.target.get_id();
+  }
+
+  @Override
+  protected int getItemHash(PairedMessage model) {
+    return model.contentHash();
+  }
 }
@@ -2,6 +2,7 @@ package chat.rocket.android.layouthelper.chatroom;
 
 import chat.rocket.android.helper.DateTime;
 import chat.rocket.android.model.ddp.Message;
+import chat.rocket.android.model.ddp.User;
 
 /**
  * View Model for messages in chatroom.
@@ -32,4 +33,38 @@ public class PairedMessage {
         && nextSibling.getU() != null && target.getU() != null
         && nextSibling.getU().get_id().equals(target.getU().get_id());
   }
+
+  /**
+   * Returns a hash of the displayed content, which depends on nextSibling as well.
+   */
+  public int contentHash() {
+    int hash = hash(target);
+    if (nextSibling != null) {
+      hash = 31 * hash + nextSibling.get_id().hashCode();
+      hash = 31 * hash + hash(nextSibling.getU());
+      hash = 31 * hash + (int) (nextSibling.getTs() ^ (nextSibling.getTs() >>> 32));
+    }
+    return hash;
+  }
+
+  private static int hash(Message message) {
+    int hash = message.get_id().hashCode();
+    hash = 31 * hash + hash(message.getT());
+    hash = 31 * hash + message.getSyncstate();
+    hash = 31 * hash + (int) (message.getTs() ^ (message.getTs() >>> 32));
+    hash = 31 * hash + hash(message.getMsg());
+    hash = 31 * hash + hash(message.getU());
+    hash = 31 * hash + (message.isGroupable() ? 1 : 0);
+    hash = 31 * hash + hash(message.getAttachments());
+    hash = 31 * hash + hash(message.getUrls());
+    return hash;
+  }
+
+  private static int hash(User user) {
+    return user == null ? 0 : 31 * hash(user.get_id()) + hash(user.getUsername());
+  }
+
+  private static int hash(String str) {
+    return str == null ? 0 : str.hashCode();
+  }
 }
@@ -2,10 +2,6 @@ package chat.rocket.android.model.ddp;
 
 import io.realm.RealmObject;
 import io.realm.annotations.PrimaryKey;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import chat.rocket.android.model.SyncState;
 
 /**
  * Message.
@@ -26,18 +22,6 @@ public class Message extends RealmObject {
   private String attachments; //JSONArray.
   private String urls; //JSONArray.
 
-  public static JSONObject customizeJson(JSONObject messageJson) throws JSONException {
-    long ts = messageJson.getJSONObject("ts").getLong("$date");
-    messageJson.remove("ts");
-    messageJson.put("ts", ts).put("syncstate", SyncState.SYNCED);
-
-    if (messageJson.isNull("groupable")) {
-      messageJson.put("groupable", true);
-    }
-
-    return messageJson;
-  }
-
   public String get_id() {
     return _id;
   }
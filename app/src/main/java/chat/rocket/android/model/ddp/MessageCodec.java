@@ -0,0 +1,61 @@
+package chat.rocket.android.model.ddp;
+
+import io.realm.Realm;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import chat.rocket.android.model.SyncState;
+import chat.rocket.android.realm_helper.RealmJsonCodec;
+
+/**
+ * Writes Message documents from the server into Realm, as SYNCED messages.
+ */
+public class MessageCodec extends RealmJsonCodec<Message> {
+  public static final MessageCodec INSTANCE = new MessageCodec();
+
+  private MessageCodec() {
+    super(Message.class, "_id");
+  }
+
+  @Override
+  protected void decodeField(Realm realm, Message message, String field, Object value)
+      throws JSONException {
+    switch (field) {
+      case "t":
+        message.setT(asString(value));
+        break;
+      case "rid":
+        message.setRid(asString(value));
+        break;
+      case "ts":
+        message.setTs(asDate(value));
+        break;
+      case "msg":
+        message.setMsg(asString(value));
+        break;
+      case "u":
+        message.setU(value instanceof JSONObject
+            ? UserCodec.INSTANCE.upsert(realm, (JSONObject) value) : null);
+        break;
+      case "groupable":
+        message.setGroupable(asBoolean(value));
+        break;
+      case "attachments":
+        message.setAttachments(asString(value));
+        break;
+      case "urls":
+        message.setUrls(asString(value));
+        break;
+      default:
+        break;
+    }
+  }
+
+  @Override
+  protected void onDecoded(Realm realm, Message message, JSONObject json) throws JSONException {
+    message.setSyncstate(SyncState.SYNCED);
+    if (json.isNull("groupable")) {
+      message.setGroupable(true);
+    }
+  }
+}
@@ -3,8 +3,6 @@ package chat.rocket.android.model.ddp;
 import android.support.annotation.Nullable;
 import io.realm.RealmObject;
 import io.realm.annotations.PrimaryKey;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 import chat.rocket.android.realm_helper.RealmHelper;
 
@@ -21,43 +19,25 @@ public class PublicSetting extends RealmObject {
   private long _updatedAt;
   private String meta; //JSON
 
-  public static JSONObject customizeJson(JSONObject settingJson) throws JSONException {
-    if (!settingJson.isNull("_updatedAt")) {
-      long updatedAt = settingJson.getJSONObject("_updatedAt").getLong("$date");
-      settingJson.remove("_updatedAt");
-      settingJson.put("_updatedAt", updatedAt);
-    }
-
-    return settingJson;
-  }
-
-  private static
-  @Nullable
-  PublicSetting get(RealmHelper realmHelper, String _id) {
-    return realmHelper.executeTransactionForRead(realm ->
-        realm.where(PublicSetting.class).equalTo("_id", _id).findFirst());
-  }
-
   public static
   @Nullable
   String getString(RealmHelper realmHelper,
                    String _id, String defaultValue) {
-    PublicSetting setting = get(realmHelper, _id);
-    if (setting != null) {
-      return setting.getValue();
-    }
-    return defaultValue;
+    return realmHelper.executeProjection(realm -> {
+      PublicSetting setting = realm.where(PublicSetting.class).equalTo("_id", _id).findFirst();
+      return setting != null ? setting.getValue() : defaultValue;
+    });
   }
 
   public static
   @Nullable
   boolean getBoolean(RealmHelper realmHelper,
                      String _id, boolean defaultValue) {
-    PublicSetting setting = get(realmHelper, _id);
-    if (setting != null) {
-      return Boolean.parseBoolean(setting.getValue());
-    }
-    return defaultValue;
+    Boolean value = realmHelper.executeProjection(realm -> {
+      PublicSetting setting = realm.where(PublicSetting.class).equalTo("_id", _id).findFirst();
+      return setting != null ? Boolean.parseBoolean(setting.getValue()) : defaultValue;
+    });
+    return value != null ? value : defaultValue;
   }
 
   public String get_id() {
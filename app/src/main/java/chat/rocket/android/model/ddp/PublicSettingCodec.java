@@ -0,0 +1,42 @@
+package chat.rocket.android.model.ddp;
+
+import io.realm.Realm;
+import org.json.JSONException;
+
+import chat.rocket.android.realm_helper.RealmJsonCodec;
+
+/**
+ * Writes PublicSetting documents into Realm.
+ */
+public class PublicSettingCodec extends RealmJsonCodec<PublicSetting> {
+  public static final PublicSettingCodec INSTANCE = new PublicSettingCodec();
+
+  private PublicSettingCodec() {
+    super(PublicSetting.class, "_id");
+  }
+
+  @Override
+  protected void decodeField(Realm realm, PublicSetting setting, String field, Object value)
+      throws JSONException {
+    switch (field) {
+      case "group":
+        setting.setGroup(asString(value));
+        break;
+      case "type":
+        setting.setType(asString(value));
+        break;
+      case "value":
+        // any type is available, so keep it as text.
+        setting.setValue(asString(value));
+        break;
+      case "_updatedAt":
+        setting.set_updatedAt(asDate(value));
+        break;
+      case "meta":
+        setting.setMeta(asString(value));
+        break;
+      default:
+        break;
+    }
+  }
+}
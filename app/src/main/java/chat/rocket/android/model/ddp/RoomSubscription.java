@@ -2,8 +2,6 @@ package chat.rocket.android.model.ddp;
 
 import io.realm.RealmObject;
 import io.realm.annotations.PrimaryKey;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 /**
  * Chat Room(Subscription).
@@ -26,22 +24,6 @@ public class RoomSubscription extends RealmObject {
   private long _updatedAt;
   private long ls; //last seen.
 
-  public static JSONObject customizeJson(JSONObject roomSubscriptionJson) throws JSONException {
-    if (!roomSubscriptionJson.isNull("ls")) {
-      long ls = roomSubscriptionJson.getJSONObject("ls").getLong("$date");
-      roomSubscriptionJson.remove("ls");
-      roomSubscriptionJson.put("ls", ls);
-    }
-
-    if (!roomSubscriptionJson.isNull("_updatedAt")) {
-      long updatedAt = roomSubscriptionJson.getJSONObject("_updatedAt").getLong("$date");
-      roomSubscriptionJson.remove("_updatedAt");
-      roomSubscriptionJson.put("_updatedAt", updatedAt);
-    }
-
-    return roomSubscriptionJson;
-  }
-
   public String get_id() {
     return _id;
   }
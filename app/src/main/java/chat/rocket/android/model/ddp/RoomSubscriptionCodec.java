@@ -0,0 +1,51 @@
+package chat.rocket.android.model.ddp;
+
+import io.realm.Realm;
+import org.json.JSONException;
+
+import chat.rocket.android.realm_helper.RealmJsonCodec;
+
+/**
+ * Writes RoomSubscription documents into Realm.
+ */
+public class RoomSubscriptionCodec extends RealmJsonCodec<RoomSubscription> {
+  public static final RoomSubscriptionCodec INSTANCE = new RoomSubscriptionCodec();
+
+  private RoomSubscriptionCodec() {
+    super(RoomSubscription.class, "rid");
+  }
+
+  @Override
+  protected void decodeField(Realm realm, RoomSubscription subscription, String field,
+                             Object value) throws JSONException {
+    switch (field) {
+      case "_id":
+        subscription.set_id(asString(value));
+        break;
+      case "name":
+        subscription.setName(asString(value));
+        break;
+      case "t":
+        subscription.setT(asString(value));
+        break;
+      case "open":
+        subscription.setOpen(asBoolean(value));
+        break;
+      case "alert":
+        subscription.setAlert(asBoolean(value));
+        break;
+      case "unread":
+        subscription.setUnread(asInt(value));
+        break;
+      case "_updatedAt":
+        subscription.set_updatedAt(asDate(value));
+        break;
+      case "ls":
+        subscription.setLs(asDate(value));
+        break;
+      default:
+        // "u" is not saved, because it is just me.
+        break;
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package chat.rocket.android.model.ddp;
+
+import io.realm.Realm;
+import io.realm.RealmList;
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import chat.rocket.android.realm_helper.RealmJsonCodec;
+
+/**
+ * Writes User documents into Realm.
+ */
+public class UserCodec extends RealmJsonCodec<User> {
+  public static final UserCodec INSTANCE = new UserCodec();
+
+  private UserCodec() {
+    super(User.class, "_id");
+  }
+
+  @Override
+  protected void decodeField(Realm realm, User user, String field, Object value)
+      throws JSONException {
+    switch (field) {
+      case "username":
+        user.setUsername(asString(value));
+        break;
+      case "status":
+        user.setStatus(asString(value));
+        break;
+      case "utcOffset":
+        user.setUtcOffset(asDouble(value));
+        break;
+      case "emails":
+        decodeEmails(realm, user, value);
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void decodeEmails(Realm realm, User user, Object value) throws JSONException {
+    RealmList<Email> emails = user.getEmails();
+    emails.clear();
+    if (value instanceof JSONArray) {
+      // only the current user has emails, so the generic import is fine here.
+      JSONArray array = (JSONArray) value;
+      for (int i = 0; i < array.length(); i++) {
+        emails.add(realm.createOrUpdateObjectFromJson(Email.class, array.getJSONObject(i)));
+      }
+    }
+  }
+}
@@ -16,6 +16,9 @@ public class LoadMessageProcedure extends RealmObject {
 
   private boolean hasNext;
 
+  private long syncedUntil; // ts of the newest message synced by loading the history.
+  private long syncedAt;
+
   public String getRoomId() {
     return roomId;
   }
@@ -63,4 +66,20 @@ public class LoadMessageProcedure extends RealmObject {
   public void setHasNext(boolean hasNext) {
     this.hasNext = hasNext;
   }
+
+  public long getSyncedUntil() {
+    return syncedUntil;
+  }
+
+  public void setSyncedUntil(long syncedUntil) {
+    this.syncedUntil = syncedUntil;
+  }
+
+  public long getSyncedAt() {
+    return syncedAt;
+  }
+
+  public void setSyncedAt(long syncedAt) {
+    this.syncedAt = syncedAt;
+  }
 }
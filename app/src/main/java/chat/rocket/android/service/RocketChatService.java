@@ -3,6 +3,7 @@ package chat.rocket.android.service;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
+import android.os.HandlerThread;
 import android.os.IBinder;
 import android.support.annotation.Nullable;
 import io.realm.RealmResults;
@@ -21,8 +22,12 @@ import chat.rocket.android.realm_helper.RealmStore;
  */
 public class RocketChatService extends Service {
 
+  // all the connections run on this thread. kept across the re-creation of the service,
+  // as the connections outlive the service.
+  private static HandlerThread connectionThread;
+
   private RealmHelper realmHelper;
-  private HashMap<String, RocketChatWebSocketThread> webSocketThreads;
+  private HashMap<String, RocketChatWebSocketConnection> webSocketConnections;
   private RealmListObserver<ServerConfig> connectionRequiredServerConfigObserver;
 
   /**
@@ -35,7 +40,11 @@ public class RocketChatService extends Service {
   @Override
   public void onCreate() {
     super.onCreate();
-    webSocketThreads = new HashMap<>();
+    if (connectionThread == null) {
+      connectionThread = new HandlerThread("RC_thread");
+      connectionThread.start();
+    }
+    webSocketConnections = new HashMap<>();
     realmHelper = RealmStore.getDefault();
     connectionRequiredServerConfigObserver = realmHelper
         .createListObserver(realm -> realm.where(ServerConfig.class)
@@ -68,10 +77,10 @@ public class RocketChatService extends Service {
             .findAll());
     for (ServerConfig config : configs) {
       String serverConfigId = config.getServerConfigId();
-      if (webSocketThreads.containsKey(serverConfigId)) {
-        RocketChatWebSocketThread thread = webSocketThreads.get(serverConfigId);
-        if (thread != null) {
-          thread.keepalive();
+      if (webSocketConnections.containsKey(serverConfigId)) {
+        RocketChatWebSocketConnection connection = webSocketConnections.get(serverConfigId);
+        if (connection != null) {
+          connection.keepalive();
         }
       }
     }
@@ -106,22 +115,24 @@ public class RocketChatService extends Service {
     ServerConfig config = configList.get(0);
     final String serverConfigId = config.getServerConfigId();
     ServerConfig.updateState(serverConfigId, ServerConfig.STATE_CONNECTING)
-        .onSuccessTask(task -> createWebSocketThread(config))
+        .onSuccessTask(task -> createWebSocketConnection(config))
         .onSuccessTask(task -> {
-          RocketChatWebSocketThread thread = task.getResult();
-          if (thread != null) {
-            thread.keepalive();
+          RocketChatWebSocketConnection connection = task.getResult();
+          if (connection != null) {
+            connection.keepalive();
           }
           return ServerConfig.updateState(serverConfigId, ServerConfig.STATE_CONNECTED);
         }).continueWith(new LogcatIfError());
   }
 
-  private Task<RocketChatWebSocketThread> createWebSocketThread(final ServerConfig config) {
+  private Task<RocketChatWebSocketConnection> createWebSocketConnection(
+      final ServerConfig config) {
     final String serverConfigId = config.getServerConfigId();
-    webSocketThreads.put(serverConfigId, null);
-    return RocketChatWebSocketThread.getStarted(getApplicationContext(), config)
+    webSocketConnections.put(serverConfigId, null);
+    return RocketChatWebSocketConnection.getStarted(getApplicationContext(),
+        connectionThread.getLooper(), config)
         .onSuccessTask(task -> {
-          webSocketThreads.put(serverConfigId, task.getResult());
+          webSocketConnections.put(serverConfigId, task.getResult());
           return task;
         });
   }
@@ -2,7 +2,7 @@ package chat.rocket.android.service;
 
 import android.content.Context;
 import android.os.Handler;
-import android.os.HandlerThread;
+import android.os.Looper;
 import org.json.JSONObject;
 
 import java.lang.reflect.Constructor;
@@ -12,6 +12,7 @@ import bolts.Continuation;
 import bolts.Task;
 import bolts.TaskCompletionSource;
 import chat.rocket.android.api.DDPClientWraper;
+import chat.rocket.android.api.MethodCallHelper;
 import chat.rocket.android.helper.LogcatIfError;
 import chat.rocket.android.helper.TextUtils;
 import chat.rocket.android.log.RCLog;
@@ -33,13 +34,16 @@ import chat.rocket.android.service.observer.NotificationItemObserver;
 import chat.rocket.android.service.observer.ReactiveNotificationManager;
 import chat.rocket.android.service.observer.SessionObserver;
 import chat.rocket.android.service.observer.TokenLoginObserver;
+import chat.rocket.android_ddp.DDPClient;
 import chat.rocket.android_ddp.DDPClientCallback;
 import hugo.weaving.DebugLog;
 
 /**
- * Thread for handling WebSocket connection.
+ * WebSocket connection to a server.
+ * The connections of all the servers share the looper given by RocketChatService,
+ * so the number of threads doesn't grow with the number of servers.
  */
-public class RocketChatWebSocketThread extends HandlerThread {
+public class RocketChatWebSocketConnection {
   private static final Class[] REGISTERABLE_CLASSES = {
       LoginServiceConfigurationSubscriber.class,
       ActiveUsersSubscriber.class,
@@ -57,56 +61,53 @@ public class RocketChatWebSocketThread extends HandlerThread {
       FileUploadingWithUfsObserver.class
   };
   private final Context appContext;
+  private final Handler handler;
   private final String serverConfigId;
   private final RealmHelper defaultRealm;
   private final RealmHelper serverConfigRealm;
   private final ArrayList<Registerable> listeners = new ArrayList<>();
   private DDPClientWraper ddpClient;
+  // the client running the reconnect hook.
+  private DDPClient reconnectingClient;
   private boolean listenersRegistered;
 
-  private RocketChatWebSocketThread(Context appContext, String serverConfigId) {
-    super("RC_thread_" + serverConfigId);
+  private RocketChatWebSocketConnection(Context appContext, Looper looper,
+                                        String serverConfigId) {
     this.appContext = appContext;
+    this.handler = new Handler(looper);
     this.serverConfigId = serverConfigId;
     defaultRealm = RealmStore.getDefault();
     serverConfigRealm = RealmStore.getOrCreate(serverConfigId);
   }
 
   /**
-   * create new Thread.
+   * create new connection, running on the looper.
    */
   @DebugLog
-  public static Task<RocketChatWebSocketThread> getStarted(Context appContext,
-                                                           ServerConfig config) {
-    TaskCompletionSource<RocketChatWebSocketThread> task = new TaskCompletionSource<>();
-    new RocketChatWebSocketThread(appContext, config.getServerConfigId()) {
-      @Override
-      protected void onLooperPrepared() {
-        try {
-          super.onLooperPrepared();
-          task.setResult(this);
-        } catch (Exception exception) {
-          task.setError(exception);
-        }
+  public static Task<RocketChatWebSocketConnection> getStarted(Context appContext, Looper looper,
+                                                               ServerConfig config) {
+    TaskCompletionSource<RocketChatWebSocketConnection> task = new TaskCompletionSource<>();
+    RocketChatWebSocketConnection connection =
+        new RocketChatWebSocketConnection(appContext, looper, config.getServerConfigId());
+    connection.handler.post(() -> {
+      try {
+        connection.forceInvalidateTokens();
+        task.setResult(connection);
+      } catch (Exception exception) {
+        task.setError(exception);
       }
-    }.start();
+    });
     return task.getTask()
         .onSuccessTask(_task ->
             _task.getResult().connect().onSuccessTask(__task -> _task));
   }
 
   /**
-   * destroy the thread.
+   * destroy the connection.
    */
   @DebugLog
-  public static void destroy(RocketChatWebSocketThread thread) {
-    thread.quit();
-  }
-
-  @Override
-  protected void onLooperPrepared() {
-    super.onLooperPrepared();
-    forceInvalidateTokens();
+  public static void destroy(RocketChatWebSocketConnection connection) {
+    connection.quit();
   }
 
   private void forceInvalidateTokens() {
@@ -122,26 +123,22 @@ public class RocketChatWebSocketThread extends HandlerThread {
     }).continueWith(new LogcatIfError());
   }
 
-  @Override
-  public boolean quit() {
-    if (isAlive()) {
-      new Handler(getLooper()).post(() -> {
-        RCLog.d("thread %s: quit()", Thread.currentThread().getId());
-        unregisterListeners();
-        RocketChatWebSocketThread.super.quit();
-      });
-      return true;
-    } else {
-      return super.quit();
-    }
+  /**
+   * close the connection, on the looper.
+   */
+  public void quit() {
+    handler.post(() -> {
+      RCLog.d("connection %s: quit()", serverConfigId);
+      unregisterListeners();
+    });
   }
 
   /**
-   * synchronize the state of the thread with ServerConfig.
+   * synchronize the state of the connection with ServerConfig.
    */
   @DebugLog
   public void keepalive() {
-    if (ddpClient == null || !ddpClient.isConnected()) {
+    if (ddpClient == null || !(ddpClient.isConnected() || ddpClient.isReconnecting())) {
       defaultRealm.executeTransaction(realm -> {
         ServerConfig config = realm.where(ServerConfig.class)
             .equalTo("serverConfigId", serverConfigId)
@@ -156,7 +153,7 @@ public class RocketChatWebSocketThread extends HandlerThread {
   }
 
   private void prepareWebSocket(String hostname) {
-    if (ddpClient == null || !ddpClient.isConnected()) {
+    if (ddpClient == null || !(ddpClient.isConnected() || ddpClient.isReconnecting())) {
       ddpClient = DDPClientWraper.create(hostname);
     }
   }
@@ -190,6 +187,11 @@ public class RocketChatWebSocketThread extends HandlerThread {
           throws Exception {
         registerListeners();
 
+        // DDPClient reconnects by itself after network blips, replaying the subscriptions
+        // after the hook logs in the new connection.
+        reconnectingClient = task.getResult().client;
+        reconnectingClient.setReconnectHook(RocketChatWebSocketConnection.this::onReconnected);
+
         // handling WebSocket#onClose() callback.
         task.getResult().client.getOnCloseCallback().onSuccess(_task -> {
           quit();
@@ -211,11 +213,33 @@ public class RocketChatWebSocketThread extends HandlerThread {
     });
   }
 
+  /**
+   * the new connection is not logged in yet, so login again with the stored token.
+   * the subscriptions are replayed after the login.
+   */
+  @DebugLog
+  private Task<Void> onReconnected(DDPClientCallback.Connect connect) {
+    if (!TextUtils.isEmpty(connect.session)) {
+      defaultRealm.executeTransaction(realm ->
+          realm.createOrUpdateObjectFromJson(ServerConfig.class, new JSONObject()
+              .put("serverConfigId", serverConfigId)
+              .put("session", connect.session))
+      ).continueWith(new LogcatIfError());
+    }
+
+    final Session session = serverConfigRealm.executeTransactionForRead(realm ->
+        Session.queryDefaultSession(realm).isNotNull("token").findFirst());
+    if (session == null || ddpClient == null) {
+      return null;
+    }
+    return new MethodCallHelper(serverConfigRealm, ddpClient).loginWithToken(session.getToken());
+  }
+
   //@DebugLog
   private void registerListeners() {
-    if (!Thread.currentThread().getName().equals("RC_thread_" + serverConfigId)) {
+    if (Looper.myLooper() != handler.getLooper()) {
       // execute in Looper.
-      new Handler(getLooper()).post(() -> {
+      handler.post(() -> {
         registerListeners();
       });
       return;
@@ -253,6 +277,11 @@ public class RocketChatWebSocketThread extends HandlerThread {
       return;
     }
 
+    if (reconnectingClient != null) {
+      reconnectingClient.setReconnectHook(null);
+      reconnectingClient = null;
+    }
+
     Iterator<Registerable> iterator = listeners.iterator();
     while (iterator.hasNext()) {
       Registerable registerable = iterator.next();
@@ -260,6 +289,7 @@ public class RocketChatWebSocketThread extends HandlerThread {
       iterator.remove();
     }
     if (ddpClient != null) {
+      RCLog.d("%s", ddpClient.getMetrics().snapshot());
       ddpClient.close();
       ddpClient = null;
     }
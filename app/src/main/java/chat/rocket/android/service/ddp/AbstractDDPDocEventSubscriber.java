@@ -2,25 +2,32 @@ package chat.rocket.android.service.ddp;
 
 import android.content.Context;
 import android.text.TextUtils;
-import io.realm.Realm;
 import io.realm.RealmObject;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.Iterator;
+import bolts.Task;
 import chat.rocket.android.api.DDPClientWraper;
 import chat.rocket.android.helper.LogcatIfError;
 import chat.rocket.android.log.RCLog;
+import chat.rocket.android.realm_helper.RealmBatchWriter;
 import chat.rocket.android.realm_helper.RealmHelper;
+import chat.rocket.android.realm_helper.RealmJsonCodec;
 import chat.rocket.android.service.Registerable;
 import chat.rocket.android_ddp.DDPSubscription;
 import rx.Subscription;
 
 public abstract class AbstractDDPDocEventSubscriber implements Registerable {
+  // document events are written in batches, to avoid a transaction per document on floods.
+  private static final long BATCH_WINDOW_MS = 10;
+  private static final int MAX_BATCH_SIZE = 200;
+
   protected final Context context;
   protected final String hostname;
   protected final RealmHelper realmHelper;
+  protected final RealmBatchWriter batchWriter;
   protected final DDPClientWraper ddpClient;
   private boolean isUnsubscribed;
   private String subscriptionId;
@@ -31,6 +38,7 @@ public abstract class AbstractDDPDocEventSubscriber implements Registerable {
     this.context = context;
     this.hostname = hostname;
     this.realmHelper = realmHelper;
+    this.batchWriter = realmHelper.createBatchWriter(BATCH_WINDOW_MS, MAX_BATCH_SIZE);
     this.ddpClient = ddpClient;
   }
 
@@ -42,10 +50,17 @@ public abstract class AbstractDDPDocEventSubscriber implements Registerable {
     return false;
   }
 
-  protected abstract boolean isTarget(String callbackName);
+  protected abstract String getTargetCollection();
 
   protected abstract Class<? extends RealmObject> getModelClass();
 
+  /**
+   * returns the typed codec of the model, or null for the generic import of Realm.
+   */
+  protected RealmJsonCodec<?> getCodec() {
+    return null;
+  }
+
   protected JSONObject customizeFieldJson(JSONObject json) throws JSONException {
     return json;
   }
@@ -95,10 +110,7 @@ public abstract class AbstractDDPDocEventSubscriber implements Registerable {
   }
 
   protected Subscription subscribe() {
-    return ddpClient.getSubscriptionCallback()
-        .filter(event -> event instanceof DDPSubscription.DocEvent)
-        .cast(DDPSubscription.DocEvent.class)
-        .filter(event -> isTarget(event.collection))
+    return ddpClient.getDocEventCallback(getTargetCollection())
         .subscribe(docEvent -> {
           try {
             if (docEvent instanceof DDPSubscription.Added.Before) {
@@ -119,54 +131,49 @@ public abstract class AbstractDDPDocEventSubscriber implements Registerable {
   }
 
   protected void onDocumentAdded(DDPSubscription.Added docEvent) {
-    realmHelper.executeTransaction(realm -> {
-      onDocumentAdded(realm, docEvent);
-      return null;
-    }).continueWith(new LogcatIfError());
-  }
-
-  private void onDocumentAdded(Realm realm, DDPSubscription.Added docEvent) throws JSONException {
-    //executed in RealmTransaction
-    JSONObject json = new JSONObject().put("_id", docEvent.docID);
-    mergeJson(json, docEvent.fields);
-    realm.createOrUpdateObjectFromJson(getModelClass(), customizeFieldJson(json));
+    try {
+      JSONObject json = new JSONObject().put("_id", docEvent.docID);
+      mergeJson(json, docEvent.getFields());
+      upsert("_id", customizeFieldJson(json)).continueWith(new LogcatIfError());
+    } catch (JSONException exception) {
+      RCLog.w(exception, "failed to handle added event");
+    }
   }
 
   protected void onDocumentChanged(DDPSubscription.Changed docEvent) {
-    realmHelper.executeTransaction(realm -> {
-      onDocumentChanged(realm, docEvent);
-      return null;
-    }).continueWith(new LogcatIfError());
-  }
-
-  private void onDocumentChanged(Realm realm, DDPSubscription.Changed docEvent)
-      throws JSONException {
-    //executed in RealmTransaction
-    JSONObject json = new JSONObject().put("_id", docEvent.docID);
-    if (docEvent.cleared != null) {
-      for (int i = 0; i < docEvent.cleared.length(); i++) {
-        String fieldToDelete = docEvent.cleared.getString(i);
+    try {
+      JSONObject json = new JSONObject().put("_id", docEvent.docID);
+      JSONArray cleared = docEvent.getCleared();
+      for (int i = 0; i < cleared.length(); i++) {
+        String fieldToDelete = cleared.getString(i);
         json.put(fieldToDelete, JSONObject.NULL);
       }
+      mergeJson(json, docEvent.getFields());
+      // repeated "changed" of the document in a batch are folded into one write.
+      upsert("_id", customizeFieldJson(json)).continueWith(new LogcatIfError());
+    } catch (JSONException exception) {
+      RCLog.w(exception, "failed to handle changed event");
     }
-    mergeJson(json, docEvent.fields);
-    realm.createOrUpdateObjectFromJson(getModelClass(), customizeFieldJson(json));
   }
 
-  protected void onDocumentRemoved(DDPSubscription.Removed docEvent) {
-    realmHelper.executeTransaction(realm -> {
-      onDocumentRemoved(realm, docEvent);
-      return null;
-    }).continueWith(new LogcatIfError());
+  /**
+   * write the document in the batch, with the codec of the model if any.
+   */
+  protected final Task<Void> upsert(String primaryKey, JSONObject json) throws JSONException {
+    RealmJsonCodec<?> codec = getCodec();
+    return codec != null ? batchWriter.upsert(codec, json)
+        : batchWriter.upsert(getModelClass(), primaryKey, json);
   }
 
-  private void onDocumentRemoved(Realm realm, DDPSubscription.Removed docEvent)
-      throws JSONException {
-    //executed in RealmTransaction
-    realm.where(getModelClass()).equalTo("_id", docEvent.docID).findAll().deleteAllFromRealm();
+  protected void onDocumentRemoved(DDPSubscription.Removed docEvent) {
+    batchWriter.delete(getModelClass(), "_id", docEvent.docID)
+        .continueWith(new LogcatIfError());
   }
 
   private void mergeJson(JSONObject target, JSONObject src) throws JSONException {
+    if (src == null) {
+      return;
+    }
     Iterator<String> iterator = src.keys();
     while (iterator.hasNext()) {
       String key = iterator.next();
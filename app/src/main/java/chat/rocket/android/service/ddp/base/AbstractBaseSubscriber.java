@@ -26,7 +26,7 @@ abstract class AbstractBaseSubscriber extends AbstractDDPDocEventSubscriber {
   protected abstract String getSubscriptionCallbackName();
 
   @Override
-  protected final boolean isTarget(String callbackName) {
-    return getSubscriptionCallbackName().equals(callbackName);
+  protected final String getTargetCollection() {
+    return getSubscriptionCallbackName();
   }
 }
@@ -5,7 +5,9 @@ import io.realm.RealmObject;
 
 import chat.rocket.android.api.DDPClientWraper;
 import chat.rocket.android.model.ddp.User;
+import chat.rocket.android.model.ddp.UserCodec;
 import chat.rocket.android.realm_helper.RealmHelper;
+import chat.rocket.android.realm_helper.RealmJsonCodec;
 
 /**
  * "activeUsers" subscriber.
@@ -30,4 +32,9 @@ public class ActiveUsersSubscriber extends AbstractBaseSubscriber {
   protected Class<? extends RealmObject> getModelClass() {
     return User.class;
   }
+
+  @Override
+  protected RealmJsonCodec<?> getCodec() {
+    return UserCodec.INSTANCE;
+  }
 }
@@ -25,8 +25,8 @@ abstract class AbstractStreamNotifyEventSubscriber extends AbstractDDPDocEventSu
   }
 
   @Override
-  protected final boolean isTarget(String callbackName) {
-    return getSubscriptionName().equals(callbackName);
+  protected final String getTargetCollection() {
+    return getSubscriptionName();
   }
 
   protected abstract String getSubscriptionParam();
@@ -51,11 +51,12 @@ abstract class AbstractStreamNotifyEventSubscriber extends AbstractDDPDocEventSu
   @Override
   protected final void onDocumentChanged(DDPSubscription.Changed docEvent) {
     try {
-      if (!docEvent.fields.getString("eventName").equals(getSubscriptionParam())) {
+      JSONObject fields = docEvent.getFields();
+      if (!fields.getString("eventName").equals(getSubscriptionParam())) {
         return;
       }
 
-      handleArgs(docEvent.fields.getJSONArray("args"));
+      handleArgs(fields.getJSONArray("args"));
     } catch (Exception exception) {
       RCLog.w(exception, "failed to save stream-notify event.");
     }
@@ -65,15 +66,12 @@ abstract class AbstractStreamNotifyEventSubscriber extends AbstractDDPDocEventSu
     String msg = args.length() > 0 ? args.getString(0) : null;
     JSONObject target = args.getJSONObject(args.length() - 1);
     if ("removed".equals(msg)) {
-      realmHelper.executeTransaction(realm ->
-          realm.where(getModelClass())
-              .equalTo(getPrimaryKeyForModel(), target.getString(getPrimaryKeyForModel()))
-              .findAll().deleteAllFromRealm()
-      ).continueWith(new LogcatIfError());
+      batchWriter.delete(getModelClass(), getPrimaryKeyForModel(),
+          target.getString(getPrimaryKeyForModel()))
+          .continueWith(new LogcatIfError());
     } else { //inserted, updated
-      realmHelper.executeTransaction(realm ->
-          realm.createOrUpdateObjectFromJson(getModelClass(), customizeFieldJson(target))
-      ).continueWith(new LogcatIfError());
+      upsert(getPrimaryKeyForModel(), customizeFieldJson(target))
+          .continueWith(new LogcatIfError());
     }
   }
 }
@@ -2,12 +2,12 @@ package chat.rocket.android.service.ddp.stream;
 
 import android.content.Context;
 import io.realm.RealmObject;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 import chat.rocket.android.api.DDPClientWraper;
 import chat.rocket.android.model.ddp.RoomSubscription;
+import chat.rocket.android.model.ddp.RoomSubscriptionCodec;
 import chat.rocket.android.realm_helper.RealmHelper;
+import chat.rocket.android.realm_helper.RealmJsonCodec;
 
 public class StreamNotifyUserSubscriptionsChanged extends AbstractStreamNotifyUserEventSubscriber {
   public StreamNotifyUserSubscriptionsChanged(Context context, String hostname,
@@ -27,8 +27,8 @@ public class StreamNotifyUserSubscriptionsChanged extends AbstractStreamNotifyUs
   }
 
   @Override
-  protected JSONObject customizeFieldJson(JSONObject json) throws JSONException {
-    return RoomSubscription.customizeJson(super.customizeFieldJson(json));
+  protected RealmJsonCodec<?> getCodec() {
+    return RoomSubscriptionCodec.INSTANCE;
   }
 
   @Override
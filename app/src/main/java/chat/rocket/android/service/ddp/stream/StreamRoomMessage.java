@@ -2,12 +2,12 @@ package chat.rocket.android.service.ddp.stream;
 
 import android.content.Context;
 import io.realm.RealmObject;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 import chat.rocket.android.api.DDPClientWraper;
 import chat.rocket.android.model.ddp.Message;
+import chat.rocket.android.model.ddp.MessageCodec;
 import chat.rocket.android.realm_helper.RealmHelper;
+import chat.rocket.android.realm_helper.RealmJsonCodec;
 
 /**
  * stream-room-message subscriber.
@@ -37,12 +37,12 @@ public class StreamRoomMessage extends AbstractStreamNotifyEventSubscriber {
   }
 
   @Override
-  protected String getPrimaryKeyForModel() {
-    return "_id";
+  protected RealmJsonCodec<?> getCodec() {
+    return MessageCodec.INSTANCE;
   }
 
   @Override
-  protected JSONObject customizeFieldJson(JSONObject json) throws JSONException {
-    return Message.customizeJson(super.customizeFieldJson(json));
+  protected String getPrimaryKeyForModel() {
+    return "_id";
   }
 }
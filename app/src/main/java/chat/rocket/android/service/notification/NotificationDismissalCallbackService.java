@@ -29,7 +29,8 @@ public class NotificationDismissalCallbackService extends IntentService {
       return;
     }
 
-    realmHelper.executeTransaction(realm -> {
+    // the service stops right after this.
+    realmHelper.executeTransactionBlocking(realm -> {
       NotificationItem item =
           realm.where(NotificationItem.class).equalTo("roomId", roomId).findFirst();
       if (item != null) {
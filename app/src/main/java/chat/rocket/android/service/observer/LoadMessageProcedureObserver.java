@@ -4,6 +4,7 @@ import android.content.Context;
 import io.realm.Realm;
 import io.realm.RealmResults;
 import io.realm.Sort;
+import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.util.List;
@@ -13,6 +14,7 @@ import chat.rocket.android.api.MethodCallHelper;
 import chat.rocket.android.log.RCLog;
 import chat.rocket.android.model.SyncState;
 import chat.rocket.android.model.ddp.Message;
+import chat.rocket.android.model.ddp.RoomSubscription;
 import chat.rocket.android.model.internal.LoadMessageProcedure;
 import chat.rocket.android.realm_helper.RealmHelper;
 
@@ -21,6 +23,9 @@ import chat.rocket.android.realm_helper.RealmHelper;
  */
 public class LoadMessageProcedureObserver extends AbstractModelObserver<LoadMessageProcedure> {
 
+  // reopening the room within this, only the new messages are fetched.
+  private static final long DELTA_SYNC_MAX_AGE_MS = 30 * 60 * 1000;
+
   private final MethodCallHelper methodCall;
 
   public LoadMessageProcedureObserver(Context context, String hostname,
@@ -47,31 +52,24 @@ public class LoadMessageProcedureObserver extends AbstractModelObserver<LoadMess
     final boolean isReset = procedure.isReset();
     final long timestamp = procedure.getTimestamp();
     final int count = procedure.getCount();
-    final long lastSeen = 0; // TODO: Not implemented yet.
+    final long lastSeen = getLastSeen(roomId);
+    final long syncedUntil = procedure.getSyncedUntil();
+    // the delta doesn't include the edits of the older messages, so not after a long absence.
+    final boolean canSyncDelta = isReset && syncedUntil > 0
+        && System.currentTimeMillis() - procedure.getSyncedAt() < DELTA_SYNC_MAX_AGE_MS;
 
     realmHelper.executeTransaction(realm ->
         realm.createOrUpdateObjectFromJson(LoadMessageProcedure.class, new JSONObject()
             .put("roomId", roomId)
             .put("syncstate", SyncState.SYNCING))
     ).onSuccessTask(task ->
-        methodCall.loadHistory(roomId, isReset ? 0 : timestamp, count, lastSeen)
-            .onSuccessTask(_task -> {
-              Message lastMessage = realmHelper.executeTransactionForRead(realm ->
-                  realm.where(Message.class)
-                      .equalTo("rid", roomId)
-                      .equalTo("syncstate", SyncState.SYNCED)
-                      .findAllSorted("ts", Sort.ASCENDING).first(null));
-              long lastTs = lastMessage != null ? lastMessage.getTs() : 0;
-              int messageCount = _task.getResult().length();
-              return realmHelper.executeTransaction(realm ->
-                  realm.createOrUpdateObjectFromJson(LoadMessageProcedure.class, new JSONObject()
-                      .put("roomId", roomId)
-                      .put("syncstate", SyncState.SYNCED)
-                      .put("timestamp", lastTs)
-                      .put("reset", false)
-                      .put("hasNext", messageCount == count)));
-            })
-    ).continueWithTask(task -> {
+        canSyncDelta ? syncDelta(roomId, count, syncedUntil) : Task.forResult(false)
+    ).onSuccessTask(task -> {
+      if (task.getResult()) {
+        return Task.forResult(null);
+      }
+      return loadHistory(roomId, isReset, timestamp, count, lastSeen, syncedUntil);
+    }).continueWithTask(task -> {
       if (task.isFaulted()) {
         RCLog.w(task.getError());
         return realmHelper.executeTransaction(realm ->
@@ -83,4 +81,79 @@ public class LoadMessageProcedureObserver extends AbstractModelObserver<LoadMess
       }
     });
   }
+
+  /**
+   * fetch only the messages newer than syncedUntil, and merge them in place.
+   *
+   * @return false if there are too many new messages, and the history should be reloaded.
+   */
+  private Task<Boolean> syncDelta(String roomId, int count, long syncedUntil) {
+    return methodCall.loadNextMessages(roomId, syncedUntil, count).onSuccessTask(task -> {
+      JSONArray messages = task.getResult();
+      if (messages.length() >= count) {
+        // might be more. reload the latest page rather than following them all.
+        return Task.forResult(false);
+      }
+      long newestTs = Math.max(syncedUntil, getNewestTs(messages));
+      return realmHelper.executeTransaction(realm ->
+          realm.createOrUpdateObjectFromJson(LoadMessageProcedure.class, new JSONObject()
+              .put("roomId", roomId)
+              .put("syncstate", SyncState.SYNCED)
+              .put("reset", false)
+              .put("syncedUntil", newestTs)
+              .put("syncedAt", System.currentTimeMillis()))
+      ).onSuccessTask(_task -> Task.forResult(true));
+    });
+  }
+
+  private Task<Void> loadHistory(String roomId, boolean isReset, long timestamp, int count,
+                                 long lastSeen, long syncedUntil) {
+    return methodCall.loadHistory(roomId, isReset ? 0 : timestamp, count, lastSeen)
+        .onSuccessTask(task -> {
+          Message lastMessage = realmHelper.executeTransactionForRead(realm ->
+              realm.where(Message.class)
+                  .equalTo("rid", roomId)
+                  .equalTo("syncstate", SyncState.SYNCED)
+                  .findAllSorted("ts", Sort.ASCENDING).first(null));
+          long lastTs = lastMessage != null ? lastMessage.getTs() : 0;
+          JSONArray messages = task.getResult();
+          // loading the older messages doesn't move the newest synced one.
+          long newestTs = isReset ? getNewestTs(messages) : syncedUntil;
+          return realmHelper.executeTransaction(realm -> {
+            JSONObject json = new JSONObject()
+                .put("roomId", roomId)
+                .put("syncstate", SyncState.SYNCED)
+                .put("timestamp", lastTs)
+                .put("reset", false)
+                .put("hasNext", messages.length() == count)
+                .put("syncedUntil", newestTs);
+            if (isReset) {
+              json.put("syncedAt", System.currentTimeMillis());
+            }
+            realm.createOrUpdateObjectFromJson(LoadMessageProcedure.class, json);
+            return null;
+          });
+        });
+  }
+
+  private long getLastSeen(String roomId) {
+    Long lastSeen = realmHelper.executeProjection(realm -> {
+      RoomSubscription subscription = realm.where(RoomSubscription.class)
+          .equalTo("rid", roomId)
+          .findFirst();
+      return subscription != null ? subscription.getLs() : 0L;
+    });
+    return lastSeen != null ? lastSeen : 0;
+  }
+
+  private static long getNewestTs(JSONArray messages) {
+    long newestTs = 0;
+    for (int i = 0; i < messages.length(); i++) {
+      JSONObject message = messages.optJSONObject(i);
+      if (message != null) {
+        newestTs = Math.max(newestTs, message.optLong("ts"));
+      }
+    }
+    return newestTs;
+  }
 }
@@ -12,6 +12,7 @@ import chat.rocket.android.helper.LogcatIfError;
 import chat.rocket.android.log.RCLog;
 import chat.rocket.android.model.SyncState;
 import chat.rocket.android.model.ddp.Message;
+import chat.rocket.android.model.ddp.MessageCodec;
 import chat.rocket.android.realm_helper.RealmHelper;
 
 /**
@@ -64,12 +65,9 @@ public class NewMessageObserver extends AbstractModelObserver<Message> {
             .put("syncstate", SyncState.SYNCING)
         )
     ).onSuccessTask(task ->
-        methodCall.sendMessage(messageId, roomId, msg).onSuccessTask(_task -> {
-          JSONObject messageJson = _task.getResult();
-          messageJson.put("syncstate", SyncState.SYNCED);
-          return realmHelper.executeTransaction(realm ->
-              realm.createOrUpdateObjectFromJson(Message.class, messageJson));
-        })
+        methodCall.sendMessage(messageId, roomId, msg).onSuccessTask(_task ->
+            realmHelper.executeTransaction(realm ->
+                MessageCodec.INSTANCE.upsert(realm, _task.getResult())))
     ).continueWith(task -> {
       if (task.isFaulted()) {
         RCLog.w(task.getError());
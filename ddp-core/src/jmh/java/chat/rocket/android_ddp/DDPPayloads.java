@@ -0,0 +1,71 @@
+package chat.rocket.android_ddp;
+
+/**
+ * Inbound frames of the sizes seen from a Rocket.Chat server.
+ */
+class DDPPayloads {
+  // "users" of the "activeUsers" publication, on a status change. (~100 bytes)
+  static final String PRESENCE_CHANGED = "{\"msg\":\"changed\",\"collection\":\"users\","
+      + "\"id\":\"8bC3tGsxqqZ3eA5Kk\",\"fields\":{\"status\":\"away\",\"utcOffset\":9}}";
+
+  // a message with an attachment and reactions. (~800 bytes)
+  static final String MESSAGE_ADDED = "{\"msg\":\"added\",\"collection\":\"rocketchat_message\","
+      + "\"id\":\"dq4Yv6tuzvdPvzKmZ\",\"fields\":" + message(0) + "}";
+
+  // a method result, e.g. "getRoomRoles". (~400 bytes)
+  static final String METHOD_RESULT = "{\"msg\":\"result\",\"id\":\"42\",\"result\":["
+      + "{\"rid\":\"GENERAL\",\"u\":{\"_id\":\"8bC3tGsxqqZ3eA5Kk\",\"username\":\"rocket.cat\"},"
+      + "\"roles\":[\"owner\",\"moderator\"],\"_id\":\"NGk7Mv3C3Njzcbkm8\"},"
+      + "{\"rid\":\"GENERAL\",\"u\":{\"_id\":\"Wz4pbKu3emvfFRrxN\",\"username\":\"admin\"},"
+      + "\"roles\":[\"moderator\"],\"_id\":\"sJ8AtRqd2BmMGpXkY\"},"
+      + "{\"rid\":\"GENERAL\",\"u\":{\"_id\":\"H9sP3xN2ZkPqa4bLd\",\"username\":\"user1\"},"
+      + "\"roles\":[\"leader\"],\"_id\":\"pQ7yKx5bR2MeHtWcz\"}]}";
+
+  // "loadHistory" result, paged by the client but still ~200 KB with the attachments.
+  static final String LOAD_HISTORY_RESULT = loadHistoryResult(200 * 1024);
+
+  static String get(String name) {
+    switch (name) {
+      case "presenceChanged":
+        return PRESENCE_CHANGED;
+      case "messageAdded":
+        return MESSAGE_ADDED;
+      case "methodResult":
+        return METHOD_RESULT;
+      case "loadHistoryResult":
+        return LOAD_HISTORY_RESULT;
+      default:
+        throw new IllegalArgumentException(name);
+    }
+  }
+
+  private static String message(int index) {
+    long ts = 1481616000000L + index * 1000L;
+    return "{\"_id\":\"message" + index + "\",\"rid\":\"GENERAL\","
+        + "\"msg\":\"Hey @rocket.cat, the build #" + index + " is green. "
+        + "Release notes are attached, please have a look before the sprint review.\","
+        + "\"ts\":{\"$date\":" + ts + "},"
+        + "\"u\":{\"_id\":\"8bC3tGsxqqZ3eA5Kk\",\"username\":\"rocket.cat\"},"
+        + "\"mentions\":[{\"_id\":\"Wz4pbKu3emvfFRrxN\",\"username\":\"admin\"}],"
+        + "\"channels\":[],\"groupable\":false,"
+        + "\"attachments\":[{\"title\":\"release-notes.md\","
+        + "\"title_link\":\"/file-upload/Yx3mWqLhJ2/release-notes.md\","
+        + "\"title_link_download\":true,\"type\":\"file\","
+        + "\"description\":\"changes of the build #" + index + "\"}],"
+        + "\"reactions\":{\":+1:\":{\"usernames\":[\"admin\",\"user1\",\"user2\"]}},"
+        + "\"urls\":[{\"url\":\"https://rocket.chat\",\"meta\":{\"pageTitle\":\"Rocket.Chat\"}}],"
+        + "\"_updatedAt\":{\"$date\":" + ts + "}}";
+  }
+
+  private static String loadHistoryResult(int minLength) {
+    StringBuilder builder = new StringBuilder("{\"msg\":\"result\",\"id\":\"43\","
+        + "\"result\":{\"messages\":[");
+    for (int i = 0; builder.length() < minLength; i++) {
+      if (i > 0) {
+        builder.append(',');
+      }
+      builder.append(message(i));
+    }
+    return builder.append("],\"unreadNotLoaded\":0}}").toString();
+  }
+}
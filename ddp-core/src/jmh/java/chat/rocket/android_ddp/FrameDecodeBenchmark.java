@@ -0,0 +1,63 @@
+package chat.rocket.android_ddp;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of decoding one inbound frame: the headers only (what the dispatcher needs),
+ * the headers and the payload (what a consumer of the frame pays),
+ * and the former full decode into a JSONObject.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameDecodeBenchmark {
+  @Param({"presenceChanged", "messageAdded", "methodResult", "loadHistoryResult"})
+  public String payload;
+
+  private String text;
+  private String payloadName;
+
+  @Setup
+  public void setUp() {
+    text = DDPPayloads.get(payload);
+    payloadName = DDPFrame.decode(text).isNull("fields") ? "result" : "fields";
+  }
+
+  @Benchmark
+  public void headers(Blackhole blackhole) {
+    DDPFrame frame = DDPFrame.decode(text);
+    blackhole.consume(frame.msg);
+    blackhole.consume(frame.id);
+  }
+
+  @Benchmark
+  public void headersAndPayload(Blackhole blackhole) {
+    DDPFrame frame = DDPFrame.decode(text);
+    blackhole.consume(frame.msg);
+    blackhole.consume("fields".equals(payloadName)
+        ? frame.optJSONObject(payloadName) : frame.optString(payloadName));
+  }
+
+  @Benchmark
+  public JSONObject jsonObject() throws JSONException {
+    return new JSONObject(text);
+  }
+}
@@ -0,0 +1,122 @@
+package chat.rocket.android_ddp;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import bolts.TaskCompletionSource;
+import rx.subjects.PublishSubject;
+import rx.subscriptions.CompositeSubscription;
+
+/**
+ * Cost of routing one "result" frame with pendingCalls RPCs in flight:
+ * the parse-once DDPFrameRouter against the former chain, where every pending call
+ * filtered the inbound stream and parsed each frame into a JSONObject by itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RpcDispatchBenchmark {
+  // a typical small method result. (e.g. "readMessages", "UserPresence:setDefaultStatus")
+  private static final String RESULT_TEMPLATE = "{\"msg\":\"result\",\"id\":\"%s\","
+      + "\"result\":{\"_id\":\"dq4Yv6tuzvdPvzKmZ\",\"rid\":\"GENERAL\",\"msg\":\"hello\","
+      + "\"ts\":{\"$date\":1481616000000},\"u\":{\"_id\":\"8bC3tGsxqqZ3eA5Kk\","
+      + "\"username\":\"rocket.cat\"},\"_updatedAt\":{\"$date\":1481616000000}}}";
+
+  @Param({"1", "10", "100", "500"})
+  public int pendingCalls;
+
+  private String[] frames;
+  private int next;
+
+  private DDPFrameRouter router;
+  private DDPFrameRouter.FrameHandler handler;
+
+  private PublishSubject<String> inbound;
+  private CompositeSubscription legacySubscriptions;
+
+  @Setup
+  public void setUp() {
+    frames = new String[pendingCalls];
+    for (int i = 0; i < pendingCalls; i++) {
+      frames[i] = String.format(RESULT_TEMPLATE, callId(i));
+    }
+
+    router = new DDPFrameRouter(TimeoutWheel.shared(), (msg, label, task) -> {
+    });
+    // what rpc() does with the frame, short of completing the task.
+    handler = response -> response.isNull("error") && response.optString("result") != null;
+    for (int i = 0; i < pendingCalls; i++) {
+      router.register("result", callId(i), new TaskCompletionSource<>(), handler);
+    }
+
+    inbound = PublishSubject.create();
+    legacySubscriptions = new CompositeSubscription();
+    for (int i = 0; i < pendingCalls; i++) {
+      final String id = callId(i);
+      // the chain each rpc() used to add, except the timeout operator.
+      legacySubscriptions.add(inbound
+          .map(RpcDispatchBenchmark::toJson)
+          .subscribe(response -> {
+            if (response != null && "result".equals(response.optString("msg"))
+                && id.equals(response.optString("id"))) {
+              response.optString("result");
+            }
+          }));
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    legacySubscriptions.unsubscribe();
+  }
+
+  private static String callId(int index) {
+    return "call-" + index;
+  }
+
+  private static JSONObject toJson(String text) {
+    try {
+      return new JSONObject(text);
+    } catch (JSONException exception) {
+      return null;
+    }
+  }
+
+  private int nextIndex() {
+    int index = next;
+    next = (next + 1) % pendingCalls;
+    return index;
+  }
+
+  @Benchmark
+  public void router(Blackhole blackhole) {
+    int index = nextIndex();
+    DDPFrame frame = DDPFrame.decode(frames[index]);
+    router.dispatch(frame.msg, frame.id, frame);
+    // the call is finished by the frame, so register it again to keep pendingCalls in flight.
+    router.register("result", callId(index), new TaskCompletionSource<>(), handler);
+    blackhole.consume(frame);
+  }
+
+  @Benchmark
+  public void legacyChain() {
+    inbound.onNext(frames[nextIndex()]);
+  }
+}
@@ -0,0 +1,81 @@
+package chat.rocket.android_ddp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.OkHttpClient;
+import rx.Subscription;
+
+/**
+ * Cost of one document event through DDPClient, from the inbound queue to
+ * the observer of getSubscriptionCallback(): dispatch, mapping into the DocEvent and delivery.
+ * The frames are injected in batches of BATCH, waiting for all of them to be observed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubscriptionEventBenchmark {
+  private static final int BATCH = 1000;
+
+  @Param({"presenceChanged", "messageAdded"})
+  public String payload;
+
+  // whether the observer reads the fields, which are decoded lazily.
+  @Param({"false", "true"})
+  public boolean readFields;
+
+  private final AtomicInteger observed = new AtomicInteger();
+  private String text;
+  private DDPClient client;
+  private Subscription subscription;
+
+  @Setup
+  public void setUp() {
+    text = DDPPayloads.get(payload);
+    client = new DDPClient(new OkHttpClient());
+    subscription = client.getSubscriptionCallback().subscribe(event -> {
+      if (readFields) {
+        if (event instanceof DDPSubscription.Added) {
+          ((DDPSubscription.Added) event).getFields();
+        } else if (event instanceof DDPSubscription.Changed) {
+          ((DDPSubscription.Changed) event).getFields();
+        }
+      }
+      observed.incrementAndGet();
+    });
+  }
+
+  @TearDown
+  public void tearDown() {
+    subscription.unsubscribe();
+    client.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void docEvents() throws InterruptedException {
+    int target = observed.get() + BATCH;
+    for (int i = 0; i < BATCH; i++) {
+      client.injectInbound(text);
+    }
+    while (observed.get() < target) {
+      Thread.yield();
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package chat.rocket.android_ddp;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serial lane of a client on the shared callback threads, which run the consumers of the client:
+ * the continuations of its tasks, the observers of its events and the reconnect hook.
+ * The callbacks of a client run one at a time in order, and a slow consumer holds only
+ * the lane of its client, not the dispatcher threads shared by all the clients.
+ * The listener is told when more than maxPending callbacks are waiting, to stop feeding the lane.
+ */
+class CallbackLane implements Executor {
+  // each lane takes at most one thread at a time, so the threads are bounded by the clients.
+  private static final Executor SHARED_EXECUTOR = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+      60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, "DDP-Callback");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private final Executor executor;
+  private final int maxPending;
+  private final Listener listener;
+  private final ArrayDeque<Runnable> callbacks = new ArrayDeque<>();
+  private boolean running;
+  private boolean full;
+
+  CallbackLane(int maxPending, Listener listener) {
+    this(SHARED_EXECUTOR, maxPending, listener);
+  }
+
+  CallbackLane(Executor executor, int maxPending, Listener listener) {
+    this.executor = executor;
+    this.maxPending = maxPending;
+    this.listener = listener;
+  }
+
+  @Override
+  public void execute(Runnable callback) {
+    final boolean becameFull;
+    synchronized (this) {
+      callbacks.addLast(callback);
+      becameFull = !full && callbacks.size() > maxPending;
+      if (becameFull) {
+        full = true;
+      }
+      if (!running) {
+        running = true;
+        executor.execute(this::drain);
+      }
+    }
+    if (becameFull) {
+      listener.onFull();
+    }
+  }
+
+  private void drain() {
+    while (true) {
+      final Runnable callback;
+      final boolean drained;
+      synchronized (this) {
+        callback = callbacks.pollFirst();
+        if (callback == null) {
+          running = false;
+          return;
+        }
+        drained = full && callbacks.size() <= maxPending / 2;
+        if (drained) {
+          full = false;
+        }
+      }
+      if (drained) {
+        listener.onDrained();
+      }
+
+      try {
+        callback.run();
+      } catch (RuntimeException exception) {
+        DDPLog.w(exception, "DDP callback failed");
+      }
+    }
+  }
+
+  interface Listener {
+    /**
+     * called when more than maxPending callbacks are waiting.
+     */
+    void onFull();
+
+    /**
+     * called when the waiting callbacks are down to half of maxPending after onFull().
+     */
+    void onDrained();
+  }
+}
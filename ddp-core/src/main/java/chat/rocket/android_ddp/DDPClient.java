@@ -0,0 +1,152 @@
+package chat.rocket.android_ddp;
+
+import javax.annotation.Nullable;
+import org.json.JSONArray;
+
+import bolts.Task;
+import bolts.TaskCompletionSource;
+import chat.rocket.android_ddp.rx.RxWebSocketCallback;
+import chat.rocket.android_ddp.rx.TrafficRecorder;
+import okhttp3.OkHttpClient;
+import rx.Observable;
+
+public class DDPClient {
+  // reference: https://github.com/eddflrs/meteor-ddp/blob/master/meteor-ddp.js
+
+  private static final long PING_TIMEOUT_MS = 4000;
+
+  private final DDPClientImpl impl;
+
+  public DDPClient(OkHttpClient client) {
+    impl = new DDPClientImpl(this, client);
+  }
+
+  /**
+   * set the policy for reconnecting after the connection is lost.
+   * the active subscriptions are replayed on the new connection.
+   */
+  public void setReconnectPolicy(ReconnectPolicy reconnectPolicy) {
+    impl.setReconnectPolicy(reconnectPolicy);
+  }
+
+  /**
+   * set the policy of the client-side heartbeat, which detects half-open connections
+   * and hands them off to reconnection.
+   */
+  public void setHeartbeatPolicy(HeartbeatPolicy heartbeatPolicy) {
+    impl.setHeartbeatPolicy(heartbeatPolicy);
+  }
+
+  /**
+   * set the hook called on reconnection before the subscriptions are replayed.
+   * (e.g. login with the token, which the new connection doesn't have yet)
+   */
+  public void setReconnectHook(@Nullable ReconnectHook reconnectHook) {
+    impl.setReconnectHook(reconnectHook);
+  }
+
+  /**
+   * set the capacity of the queue between the socket reader and the dispatcher threads,
+   * and what to do when it is full. (default: 4096 frames, GROW)
+   */
+  public void setInboundQueue(int capacity, InboundOverflowPolicy overflowPolicy) {
+    impl.setInboundQueue(capacity, overflowPolicy);
+  }
+
+  /**
+   * set the maximum size in bytes of the outbound frames waiting to be written.
+   * requests exceeding the limit fail immediately, instead of being queued.
+   */
+  public void setMaxQueuedBytes(long maxQueuedBytes) {
+    impl.setMaxQueuedBytes(maxQueuedBytes);
+  }
+
+  /**
+   * record the inbound and outbound frames, for replaying with TrafficReplayer.
+   * null to stop recording.
+   */
+  public void setTrafficRecorder(@Nullable TrafficRecorder trafficRecorder) {
+    impl.setTrafficRecorder(trafficRecorder);
+  }
+
+  void injectInbound(String text) throws InterruptedException {
+    impl.injectInbound(text);
+  }
+
+  public Task<DDPClientCallback.Connect> connect(String url) {
+    return connect(url, null);
+  }
+
+  public Task<DDPClientCallback.Connect> connect(String url, String session) {
+    TaskCompletionSource<DDPClientCallback.Connect> task = new TaskCompletionSource<>();
+    impl.connect(task, url, session);
+    return impl.onCallbackLane(task.getTask());
+  }
+
+  public Task<DDPClientCallback.Ping> ping(@Nullable String id) {
+    return ping(id, PING_TIMEOUT_MS);
+  }
+
+  public Task<DDPClientCallback.Ping> ping(@Nullable String id, long timeoutMs) {
+    TaskCompletionSource<DDPClientCallback.Ping> task = new TaskCompletionSource<>();
+    impl.ping(task, id, timeoutMs);
+    return impl.onCallbackLane(task.getTask());
+  }
+
+  public Task<DDPClientCallback.RPC> rpc(String method, JSONArray params, String id,
+                                         long timeoutMs) {
+    TaskCompletionSource<DDPClientCallback.RPC> task = new TaskCompletionSource<>();
+    impl.rpc(task, method, params, id, timeoutMs);
+    return impl.onCallbackLane(task.getTask());
+  }
+
+  public Task<DDPSubscription.Ready> sub(String id, String name, JSONArray params) {
+    TaskCompletionSource<DDPSubscription.Ready> task = new TaskCompletionSource<>();
+    impl.sub(task, name, params, id);
+    return impl.onCallbackLane(task.getTask());
+  }
+
+  public Task<DDPSubscription.NoSub> unsub(String id) {
+    TaskCompletionSource<DDPSubscription.NoSub> task = new TaskCompletionSource<>();
+    impl.unsub(task, id);
+    return impl.onCallbackLane(task.getTask());
+  }
+
+  public Observable<DDPSubscription.Event> getSubscriptionCallback() {
+    return impl.getDDPSubscription();
+  }
+
+  /**
+   * returns the document events (added, changed, ...) of the collection.
+   */
+  public Observable<DDPSubscription.DocEvent> getDocEventCallback(String collection) {
+    return impl.getDocEvents(collection);
+  }
+
+  public Task<RxWebSocketCallback.Close> getOnCloseCallback() {
+    return impl.getOnCloseCallback();
+  }
+
+  public Observable<DDPClientCallback.Connect> getOnReconnectCallback() {
+    return impl.getOnReconnectCallback();
+  }
+
+  /**
+   * returns the metrics of this client. use DDPMetrics#snapshot() to read them.
+   */
+  public DDPMetrics getMetrics() {
+    return impl.getMetrics();
+  }
+
+  public boolean isConnected() {
+    return impl.isConnected();
+  }
+
+  public boolean isReconnecting() {
+    return impl.isReconnecting();
+  }
+
+  public void close() {
+    impl.close(1000, "closed by DDPClient#close()");
+  }
+}
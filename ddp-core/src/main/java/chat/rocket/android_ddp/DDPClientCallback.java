@@ -1,6 +1,6 @@
 package chat.rocket.android_ddp;
 
-import android.support.annotation.Nullable;
+import javax.annotation.Nullable;
 import org.json.JSONObject;
 
 public class DDPClientCallback {
@@ -0,0 +1,750 @@
+package chat.rocket.android_ddp;
+
+import javax.annotation.Nullable;
+import org.json.JSONArray;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+import bolts.Task;
+import bolts.TaskCompletionSource;
+import chat.rocket.android_ddp.rx.RxWebSocket;
+import chat.rocket.android_ddp.rx.RxWebSocketCallback;
+import chat.rocket.android_ddp.rx.TrafficRecorder;
+import chat.rocket.android_ddp.rx.WriteFailureListener;
+import okhttp3.OkHttpClient;
+import okio.Buffer;
+import rx.Observable;
+import rx.Subscription;
+import rx.subjects.PublishSubject;
+import rx.subscriptions.CompositeSubscription;
+
+public class DDPClientImpl {
+  private static final String[] DOC_EVENT_MSGS =
+      {"added", "changed", "removed", "addedBefore", "movedBefore"};
+
+  private static final int DEFAULT_INBOUND_CAPACITY = 4096;
+  private static final int MAX_PENDING_CALLBACKS = 1024;
+
+  private static final int STATE_IDLE = 0;
+  private static final int STATE_CONNECTING = 1;
+  private static final int STATE_CONNECTED = 2;
+  private static final int STATE_RECONNECTING = 3;
+  private static final int STATE_CLOSED = 4;
+
+  private final DDPClient client;
+  private final RxWebSocket websocket;
+  private final DDPFrameRouter router =
+      new DDPFrameRouter(TimeoutWheel.shared(), this::onTimeout);
+  private final DDPMetrics metrics = new DDPMetrics();
+  private final Heartbeat heartbeat =
+      new Heartbeat(TimeoutWheel.shared(), new Heartbeat.Listener() {
+        @Override
+        public Task<DDPClientCallback.Ping> ping(String id, long timeoutMs) {
+          TaskCompletionSource<DDPClientCallback.Ping> task = new TaskCompletionSource<>();
+          DDPClientImpl.this.ping(task, id, timeoutMs);
+          return task.getTask();
+        }
+
+        @Override
+        public void onDead() {
+          // the failure of the socket is handled as a lost connection, and triggers reconnection.
+          websocket.cancel();
+        }
+      });
+  private final PublishSubject<DDPSubscription.Event> ddpSubscription = PublishSubject.create();
+  private final DocEventRouter docEventRouter = new DocEventRouter();
+  // inbound frames are decoded and dispatched on the shared dispatcher threads,
+  // not on the socket reader.
+  private final InboundQueue inboundQueue = new InboundQueue(DispatchLoop.shared(),
+      DEFAULT_INBOUND_CAPACITY, InboundOverflowPolicy.GROW, this::dispatch);
+  // the consumers run on the lane of this client, not on the shared dispatcher threads.
+  // the dispatch is suspended while they fall behind.
+  private final CallbackLane callbackLane =
+      new CallbackLane(MAX_PENDING_CALLBACKS, new CallbackLane.Listener() {
+        @Override
+        public void onFull() {
+          inboundQueue.suspend();
+        }
+
+        @Override
+        public void onDrained() {
+          inboundQueue.resume();
+        }
+      });
+  private final PublishSubject<DDPClientCallback.Connect> reconnectCallback =
+      PublishSubject.create();
+  // "sub" requests to replay on reconnection, and "unsub" requests waiting for "nosub".
+  private final LinkedHashMap<String, FrameBody> activeSubscriptions = new LinkedHashMap<>();
+  private final LinkedHashSet<String> pendingUnsubscriptions = new LinkedHashSet<>();
+  // "method" requests made while reconnecting, sent after the reconnect hook.
+  private final ArrayList<FrameBody> heldMethods = new ArrayList<>();
+  private Observable<RxWebSocketCallback.Base> observable;
+  private CompositeSubscription subscriptions;
+  private ReconnectPolicy reconnectPolicy = ReconnectPolicy.DEFAULT;
+  private HeartbeatPolicy heartbeatPolicy = HeartbeatPolicy.DEFAULT;
+  private ReconnectHook reconnectHook;
+  // the thread running the reconnect hook, whose calls are not held.
+  private Thread hookThread;
+  // true from the loss of the connection until the reconnect hook is done.
+  private boolean resuming;
+  private TaskCompletionSource<RxWebSocketCallback.Close> closeTask;
+  private Subscription reconnectTimer;
+  private RxWebSocketCallback.Close lastClose;
+  private String url;
+  private String session;
+  private int state = STATE_IDLE;
+  private int reconnectAttempts;
+  private boolean closedByClient;
+
+  public DDPClientImpl(DDPClient self, OkHttpClient client) {
+    websocket = new RxWebSocket(client);
+    this.client = self;
+  }
+
+  public synchronized void setReconnectPolicy(ReconnectPolicy reconnectPolicy) {
+    this.reconnectPolicy = reconnectPolicy;
+  }
+
+  public synchronized void setHeartbeatPolicy(HeartbeatPolicy heartbeatPolicy) {
+    this.heartbeatPolicy = heartbeatPolicy;
+  }
+
+  public synchronized void setReconnectHook(@Nullable ReconnectHook reconnectHook) {
+    this.reconnectHook = reconnectHook;
+  }
+
+  public void setInboundQueue(int capacity, InboundOverflowPolicy overflowPolicy) {
+    inboundQueue.configure(capacity, overflowPolicy);
+  }
+
+  public void setTrafficRecorder(TrafficRecorder trafficRecorder) {
+    websocket.setTrafficRecorder(trafficRecorder);
+  }
+
+  /**
+   * feed the frame as if it is received from the server. (e.g. replaying recorded traffic)
+   */
+  void injectInbound(String text) throws InterruptedException {
+    inboundQueue.offer(text);
+  }
+
+  public void setMaxQueuedBytes(long maxQueuedBytes) {
+    websocket.setMaxQueuedBytes(maxQueuedBytes);
+  }
+
+  public void connect(final TaskCompletionSource<DDPClientCallback.Connect> task, final String url,
+                      String session) {
+    synchronized (this) {
+      this.url = url;
+      this.session = session;
+      state = STATE_CONNECTING;
+      reconnectAttempts = 0;
+      closedByClient = false;
+      closeTask = new TaskCompletionSource<>();
+    }
+
+    task.getTask().onSuccess(_task -> {
+      onConnected(_task.getResult());
+      return null;
+    });
+    openConnection(task);
+  }
+
+  private void openConnection(final TaskCompletionSource<DDPClientCallback.Connect> task) {
+    final String session;
+    synchronized (this) {
+      session = this.session;
+      lastClose = null;
+    }
+
+    try {
+      // connects when both the Open handler and the base listeners are subscribed,
+      // so neither of them misses the first callbacks.
+      observable = websocket.connect(url).autoConnect(2);
+
+      router.register("connected", null, task, response -> {
+        if (response.isNull("session")) {
+          return false;
+        }
+        task.setResult(new DDPClientCallback.Connect(client, response.optString("session")));
+        unregisterConnectCallbacks(task);
+        return true;
+      });
+      router.register("error", null, task, response -> {
+        if (!"Already connected".equals(response.optString("reason"))) {
+          return false;
+        }
+        task.setResult(new DDPClientCallback.Connect(client, null));
+        unregisterConnectCallbacks(task);
+        return true;
+      });
+      router.register("failed", null, task, response -> {
+        task.setError(
+            new DDPClientCallback.Connect.Failed(client, response.optString("version")));
+        unregisterConnectCallbacks(task);
+        return true;
+      });
+
+      observable.filter(callback -> callback instanceof RxWebSocketCallback.Open)
+          .first()
+          .subscribe(callback -> {
+            synchronized (this) {
+              if (closedByClient) {
+                // closed while reconnecting.
+                close(1000, "closed by DDPClient#close()");
+                return;
+              }
+            }
+            sendMessage("connect", writer -> {
+              if (!isEmpty(session)) {
+                writer.name("session").value(session);
+              }
+              writer.name("version").value("pre2")
+                  .name("support").beginArray().value("pre2").value("pre1").endArray();
+            });
+          }, err -> {
+          });
+
+      subscribeBaseListeners();
+    } catch (Exception e) {
+      DDPLog.e(e);
+    }
+  }
+
+  private synchronized void onConnected(DDPClientCallback.Connect result) {
+    if (state == STATE_CONNECTING) {
+      state = STATE_CONNECTED;
+      heartbeat.start(heartbeatPolicy);
+    }
+    if (result.session != null) {
+      session = result.session;
+    }
+  }
+
+  private void onDisconnected(Exception error) {
+    final int prevState;
+    final boolean shouldReconnect;
+    synchronized (this) {
+      prevState = state;
+      shouldReconnect = !closedByClient
+          && (prevState == STATE_CONNECTED || prevState == STATE_RECONNECTING)
+          && reconnectAttempts < reconnectPolicy.maxAttempts;
+      state = shouldReconnect ? STATE_RECONNECTING : STATE_CLOSED;
+      resuming = shouldReconnect;
+      // failed below with the other method calls.
+      heldMethods.clear();
+    }
+    heartbeat.stop();
+
+    if (!shouldReconnect) {
+      router.failAll(error);
+      notifyClosed(error);
+      return;
+    }
+
+    // method calls are not idempotent, so they are not retried.
+    // subscriptions keep waiting for "ready", and are replayed after reconnection.
+    router.fail(error, "result", "pong", "connected", "error", "failed");
+    scheduleReconnect();
+  }
+
+  private void scheduleReconnect() {
+    final long delayMs;
+    synchronized (this) {
+      delayMs = reconnectPolicy.getDelayMs(reconnectAttempts);
+      reconnectAttempts++;
+    }
+
+    DDPLog.d("DDP connection lost. reconnect in %d ms", delayMs);
+    Subscription timer = Observable.timer(delayMs, TimeUnit.MILLISECONDS)
+        .subscribe(_timer -> reconnect(), err -> {
+        });
+    synchronized (this) {
+      reconnectTimer = timer;
+    }
+  }
+
+  private void reconnect() {
+    synchronized (this) {
+      if (state != STATE_RECONNECTING) {
+        return;
+      }
+    }
+
+    final TaskCompletionSource<DDPClientCallback.Connect> task = new TaskCompletionSource<>();
+    task.getTask().continueWith(_task -> {
+      if (_task.isFaulted()) {
+        if (_task.getError() instanceof DDPClientCallback.Connect.Failed) {
+          // the server doesn't support our protocol version. no need to retry.
+          close(1000, "DDP version mismatch");
+        }
+        // otherwise, the failure of the connection triggers the next attempt.
+      } else {
+        onReconnected(_task.getResult());
+      }
+      return null;
+    });
+    openConnection(task);
+  }
+
+  private void onReconnected(DDPClientCallback.Connect result) {
+    final ReconnectHook hook;
+    synchronized (this) {
+      if (state != STATE_RECONNECTING) {
+        return;
+      }
+      state = STATE_CONNECTED;
+      reconnectAttempts = 0;
+      heartbeat.start(heartbeatPolicy);
+      if (result.session != null) {
+        session = result.session;
+      }
+      hook = reconnectHook;
+    }
+
+    if (hook == null) {
+      replay(result);
+    } else {
+      callbackLane.execute(() -> runReconnectHook(hook, result));
+    }
+  }
+
+  private void runReconnectHook(ReconnectHook hook, DDPClientCallback.Connect result) {
+    synchronized (this) {
+      if (state != STATE_CONNECTED || !resuming) {
+        return;
+      }
+      hookThread = Thread.currentThread();
+    }
+
+    Task<?> hookTask = null;
+    try {
+      hookTask = hook.onReconnect(result);
+    } catch (Exception e) {
+      DDPLog.e(e);
+    } finally {
+      synchronized (this) {
+        hookThread = null;
+      }
+    }
+
+    if (hookTask == null) {
+      replay(result);
+    } else {
+      hookTask.continueWith(_task -> {
+        if (_task.isFaulted()) {
+          DDPLog.w(_task.getError(), "reconnect hook failed");
+        }
+        replay(result);
+        return null;
+      });
+    }
+  }
+
+  private void replay(DDPClientCallback.Connect result) {
+    synchronized (this) {
+      if (state != STATE_CONNECTED || !resuming) {
+        // lost again while the hook was running. replayed on the next reconnection.
+        return;
+      }
+      resuming = false;
+
+      DDPLog.d("DDP reconnected. replaying %d subscriptions and %d methods",
+          activeSubscriptions.size(), heldMethods.size());
+      // sent in the lock, so that the calls made after this are not sent ahead.
+      // the frames are only queued to the writer here.
+      for (FrameBody sub : activeSubscriptions.values()) {
+        sendMessage("sub", sub);
+      }
+      for (String id : pendingUnsubscriptions) {
+        sendMessage("unsub", writer -> writer.name("id").value(id));
+      }
+      for (FrameBody method : heldMethods) {
+        sendMessage("method", method);
+      }
+      heldMethods.clear();
+    }
+    callbackLane.execute(() -> reconnectCallback.onNext(result));
+  }
+
+  // while reconnecting, "sub" and "unsub" are replayed and "method" is held.
+  private synchronized boolean isHoldingCalls() {
+    return resuming && hookThread != Thread.currentThread();
+  }
+
+  private void notifyClosed(Exception error) {
+    final TaskCompletionSource<RxWebSocketCallback.Close> task;
+    final RxWebSocketCallback.Close close;
+    synchronized (this) {
+      task = closeTask;
+      close = lastClose;
+    }
+    inboundQueue.shutdown();
+    if (task == null) {
+      return;
+    }
+
+    if (close != null) {
+      task.trySetResult(close);
+    } else {
+      task.trySetError(error);
+    }
+  }
+
+  private void unregisterConnectCallbacks(TaskCompletionSource<?> task) {
+    router.unregister("connected", null, task);
+    router.unregister("error", null, task);
+    router.unregister("failed", null, task);
+  }
+
+  public boolean isConnected() {
+    return websocket != null && websocket.isConnected();
+  }
+
+  public synchronized boolean isReconnecting() {
+    return state == STATE_RECONNECTING;
+  }
+
+  public void ping(final TaskCompletionSource<DDPClientCallback.Ping> task,
+                   @Nullable final String id, long timeoutMs) {
+    router.register("pong", isEmpty(id) ? null : id, task, "ping", timeoutMs,
+        response -> {
+          task.setResult(new DDPClientCallback.Ping(client, response.id == null ? null : id));
+          return true;
+        });
+
+    sendMessage("ping", isEmpty(id) ? null : writer -> writer.name("id").value(id), error -> {
+      if (router.unregister("pong", isEmpty(id) ? null : id, task)) {
+        task.trySetError(new Exception("failed to send ping", error));
+      }
+    });
+  }
+
+  public void sub(final TaskCompletionSource<DDPSubscription.Ready> task, String name,
+                  JSONArray params, String id) {
+    final long startedAt = System.nanoTime();
+    router.register("ready", id, task, response -> {
+      metrics.recordSubReady(name, (System.nanoTime() - startedAt) / 1000000);
+      task.setResult(new DDPSubscription.Ready(client, id));
+      router.unregister("nosub", id, task);
+      return true;
+    });
+    router.register("nosub", id, task, response -> {
+      if (response.isNull("error")) {
+        return false;
+      }
+      task.setError(new DDPSubscription.NoSub.Error(client, id, response.optJSONObject("error")));
+      router.unregister("ready", id, task);
+      return true;
+    });
+
+    FrameBody request = writer -> {
+      writer.name("id").value(id).name("name").value(name);
+      if (params != null) {
+        writer.name("params").value(params);
+      }
+    };
+    synchronized (this) {
+      activeSubscriptions.put(id, request);
+    }
+    if (isHoldingCalls()) {
+      return;
+    }
+    sendMessage("sub", request, error -> {
+      synchronized (this) {
+        if (activeSubscriptions.get(id) == request) {
+          activeSubscriptions.remove(id);
+        }
+      }
+      router.unregister("ready", id, task);
+      router.unregister("nosub", id, task);
+      task.trySetError(new Exception("failed to send sub: " + name, error));
+    });
+  }
+
+  public void unsub(final TaskCompletionSource<DDPSubscription.NoSub> task,
+                    @Nullable final String id) {
+    router.register("nosub", id, task, response -> {
+      if (!response.isNull("error")) {
+        return false;
+      }
+      task.setResult(new DDPSubscription.NoSub(client, id));
+      return true;
+    });
+
+    synchronized (this) {
+      activeSubscriptions.remove(id);
+      pendingUnsubscriptions.add(id);
+    }
+    if (isHoldingCalls()) {
+      return;
+    }
+    // on failure, the id stays in pendingUnsubscriptions and is sent again on reconnection.
+    sendMessage("unsub", writer -> writer.name("id").value(id), error -> {
+      if (router.unregister("nosub", id, task)) {
+        task.trySetError(new Exception("failed to send unsub", error));
+      }
+    });
+  }
+
+  public void rpc(final TaskCompletionSource<DDPClientCallback.RPC> task, String method,
+                  JSONArray params, String id, long timeoutMs) {
+    final long startedAt = System.nanoTime();
+    router.register("result", id, task, method, timeoutMs, response -> {
+      metrics.recordRpc(method, (System.nanoTime() - startedAt) / 1000000);
+      if (!response.isNull("error")) {
+        metrics.recordRpcError(method);
+        task.setError(new DDPClientCallback.RPC.Error(client, id,
+            response.optJSONObject("error")));
+      } else {
+        String result = response.optString("result");
+        task.setResult(new DDPClientCallback.RPC(client, id, result));
+      }
+      return true;
+    });
+
+    FrameBody request = writer -> {
+      writer.name("method").value(method);
+      if (params != null) {
+        // omitted rather than null, as the server rejects non-array params.
+        writer.name("params").value(params);
+      }
+      writer.name("id").value(id);
+    };
+    synchronized (this) {
+      if (isHoldingCalls()) {
+        heldMethods.add(request);
+        return;
+      }
+    }
+    sendMessage("method", request, error -> {
+      if (router.unregister("result", id, task)) {
+        task.trySetError(new Exception("failed to send method: " + method, error));
+      }
+    });
+  }
+
+  private void onTimeout(String msg, @Nullable String label, TaskCompletionSource<?> task) {
+    metrics.recordTimeout(label == null ? msg : label);
+
+    if ("pong".equals(msg)) {
+      task.trySetError(new DDPClientCallback.Ping.Timeout(client));
+    } else {
+      task.trySetError(new DDPClientCallback.RPC.Timeout(client));
+    }
+  }
+
+  public DDPMetrics getMetrics() {
+    return metrics;
+  }
+
+  private void subscribeBaseListeners() {
+    if (subscriptions != null && !subscriptions.isUnsubscribed()) {
+      subscriptions.unsubscribe();
+    }
+
+    // the socket reader only queues the frames. they are parsed only once on the dispatcher,
+    // and routed to the pending call.
+    // disconnection is queued too, so that it is handled after the frames received before it.
+    subscriptions = new CompositeSubscription();
+    subscriptions.add(observable.subscribe(callback -> {
+      if (callback instanceof RxWebSocketCallback.Message) {
+        heartbeat.onReceived();
+        try {
+          inboundQueue.offer(((RxWebSocketCallback.Message) callback).responseBodyString);
+        } catch (InterruptedException exception) {
+          Thread.currentThread().interrupt();
+        }
+      } else if (callback instanceof RxWebSocketCallback.Pong) {
+        heartbeat.onReceived();
+      } else if (callback instanceof RxWebSocketCallback.Close) {
+        synchronized (this) {
+          lastClose = (RxWebSocketCallback.Close) callback;
+        }
+      }
+    }, err -> {
+      inboundQueue.offerTask(() ->
+          onDisconnected(err instanceof Exception ? (Exception) err : new Exception(err)));
+    }, () -> {
+      inboundQueue.offerTask(() -> onDisconnected(new Exception("DDP connection closed")));
+    }));
+  }
+
+  private void dispatch(DDPFrame response) {
+    if (response == null || response.msg == null) {
+      return;
+    }
+
+    // the reader might be blocked by the full inbound queue, so dispatching counts as activity too.
+    heartbeat.onReceived();
+    final String msg = response.msg;
+    metrics.recordInbound(msg, response.toString().length());
+    if ("ping".equals(msg)) {
+      if (response.id == null) {
+        sendMessage("pong", null);
+      } else {
+        final String id = response.id;
+        sendMessage("pong", writer -> writer.name("id").value(id));
+      }
+    } else if ("ready".equals(msg)) {
+      JSONArray ids = response.optJSONArray("subs");
+      if (ids != null) {
+        for (int i = 0; i < ids.length(); i++) {
+          router.dispatch(msg, ids.optString(i), response);
+        }
+      }
+    } else if (isDocEvent(msg)) {
+      DDPSubscription.DocEvent event = toDocEvent(msg, response);
+      if (event != null) {
+        callbackLane.execute(() -> {
+          docEventRouter.publish(event);
+          if (ddpSubscription.hasObservers()) {
+            ddpSubscription.onNext(event);
+          }
+        });
+      }
+    } else {
+      if ("nosub".equals(msg)) {
+        synchronized (this) {
+          activeSubscriptions.remove(response.id);
+          pendingUnsubscriptions.remove(response.id);
+        }
+      }
+      router.dispatch(msg, response.id, response);
+    }
+  }
+
+  private static boolean isDocEvent(String msg) {
+    for (String m : DOC_EVENT_MSGS) {
+      if (m.equals(msg)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private DDPSubscription.DocEvent toDocEvent(String msg, DDPFrame response) {
+    // the payloads ("fields", "cleared") are decoded lazily by the consumers.
+    if ("added".equals(msg)) {
+      return new DDPSubscription.Added(client, response);
+    } else if ("addedBefore".equals(msg)) {
+      return new DDPSubscription.Added.Before(client, response);
+    } else if ("changed".equals(msg)) {
+      return new DDPSubscription.Changed(client, response);
+    } else if ("removed".equals(msg)) {
+      return new DDPSubscription.Removed(client, response.collection, response.id);
+    } else if ("movedBefore".equals(msg)) {
+      return new DDPSubscription.MovedBefore(client, response.collection, response.id,
+          response.isNull("before") ? null : response.optString("before"));
+    }
+
+    return null;
+  }
+
+  public Observable<DDPSubscription.Event> getDDPSubscription() {
+    return ddpSubscription.asObservable();
+  }
+
+  public Observable<DDPSubscription.DocEvent> getDocEvents(String collection) {
+    return docEventRouter.observe(collection);
+  }
+
+  public Observable<DDPClientCallback.Connect> getOnReconnectCallback() {
+    return reconnectCallback.asObservable();
+  }
+
+  public void unsubscribeBaseListeners() {
+    if (subscriptions != null && !subscriptions.isUnsubscribed()) {
+      subscriptions.unsubscribe();
+    }
+  }
+
+  public Task<RxWebSocketCallback.Close> getOnCloseCallback() {
+    // completed when the connection is closed and no longer reconnected.
+    return closeTask.getTask().onSuccessTask(_task -> {
+      unsubscribeBaseListeners();
+      return _task;
+    }, callbackLane);
+  }
+
+  /**
+   * @return the task completed on the callback lane, so its continuations run off the dispatcher.
+   */
+  public <T> Task<T> onCallbackLane(Task<T> task) {
+    return task.continueWithTask(_task -> _task, callbackLane);
+  }
+
+  private boolean sendMessage(String msg, @Nullable FrameBody body) {
+    return sendMessage(msg, body, null);
+  }
+
+  /**
+   * write the message into a buffer, and queue it on the websocket.
+   * the listener is notified if the message could not be queued or written,
+   * so that the call fails without waiting for its timeout.
+   *
+   * @return false if the message could not be queued. (e.g. the outbound queue is full)
+   */
+  private boolean sendMessage(String msg, @Nullable FrameBody body,
+                              @Nullable WriteFailureListener listener) {
+    try {
+      Buffer buffer = new Buffer();
+      DDPWriter writer = new DDPWriter(buffer).beginObject().name("msg").value(msg);
+      if (body != null) {
+        body.write(writer);
+      }
+      writer.endObject();
+      websocket.sendFrame(buffer.readByteString(), listener);
+      return true;
+    } catch (Exception e) {
+      DDPLog.e(e);
+      if (listener != null) {
+        listener.onWriteFailure(e);
+      }
+      return false;
+    }
+  }
+
+  public void close(int code, String reason) {
+    final boolean waitingForReconnection;
+    synchronized (this) {
+      closedByClient = true;
+      heartbeat.stop();
+      if (reconnectTimer != null) {
+        reconnectTimer.unsubscribe();
+        reconnectTimer = null;
+      }
+      waitingForReconnection = state == STATE_RECONNECTING;
+      resuming = false;
+      heldMethods.clear();
+      if (waitingForReconnection) {
+        state = STATE_CLOSED;
+        lastClose = new RxWebSocketCallback.Close(null, code, reason);
+      }
+    }
+    if (waitingForReconnection) {
+      router.failAll(new Exception(reason));
+      notifyClosed(new Exception(reason));
+    }
+
+    try {
+      websocket.close(code, reason);
+    } catch (Exception e) {
+      DDPLog.e(e);
+    }
+  }
+
+  private static boolean isEmpty(@Nullable String str) {
+    return str == null || str.length() == 0;
+  }
+
+  private interface FrameBody {
+    /**
+     * write the fields of the frame, except "msg".
+     */
+    void write(DDPWriter writer) throws IOException;
+  }
+}
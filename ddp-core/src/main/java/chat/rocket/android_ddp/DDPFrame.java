@@ -0,0 +1,163 @@
+package chat.rocket.android_ddp;
+
+import javax.annotation.Nullable;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Inbound DDP frame.
+ * Only "msg", "id" and "collection" are decoded eagerly.
+ * Other fields (fields, result, error, ...) are kept as ranges of the original text
+ * and decoded when the consumer asks for them.
+ */
+public class DDPFrame {
+  private static final int INITIAL_CAPACITY = 4;
+
+  @Nullable public String msg;
+  @Nullable public String id;
+  @Nullable public String collection;
+
+  private final String text;
+  private String[] names = new String[INITIAL_CAPACITY];
+  private int[] starts = new int[INITIAL_CAPACITY];
+  private int[] ends = new int[INITIAL_CAPACITY];
+  private int size;
+
+  private DDPFrame(String text) {
+    this.text = text;
+  }
+
+  /**
+   * decode the headers of the frame.
+   *
+   * @return null if the text is not a JSON object.
+   */
+  @Nullable
+  public static DDPFrame decode(String text) {
+    if (text == null || text.isEmpty()) {
+      return null;
+    }
+
+    try {
+      EJsonReader reader = new EJsonReader(text);
+      DDPFrame frame = new DDPFrame(text);
+
+      reader.beginObject();
+      while (reader.hasNext()) {
+        String name = reader.nextName();
+        if ("msg".equals(name)) {
+          frame.msg = reader.nextStringOrNull();
+        } else if ("id".equals(name)) {
+          frame.id = reader.nextStringOrNull();
+        } else if ("collection".equals(name)) {
+          frame.collection = reader.nextStringOrNull();
+        } else {
+          int start = reader.peekPosition();
+          reader.skipValue();
+          frame.putRange(name, start, reader.position());
+        }
+      }
+      reader.endObject();
+
+      return frame;
+    } catch (JSONException exception) {
+      return null;
+    }
+  }
+
+  private void putRange(String name, int start, int end) {
+    if (size == names.length) {
+      int capacity = size * 2;
+      String[] newNames = new String[capacity];
+      int[] newStarts = new int[capacity];
+      int[] newEnds = new int[capacity];
+      System.arraycopy(names, 0, newNames, 0, size);
+      System.arraycopy(starts, 0, newStarts, 0, size);
+      System.arraycopy(ends, 0, newEnds, 0, size);
+      names = newNames;
+      starts = newStarts;
+      ends = newEnds;
+    }
+    names[size] = name;
+    starts[size] = start;
+    ends[size] = end;
+    size++;
+  }
+
+  private int indexOf(String name) {
+    for (int i = 0; i < size; i++) {
+      if (names[i].equals(name)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private EJsonReader readerFor(int index) {
+    return new EJsonReader(text, starts[index], ends[index]);
+  }
+
+  /**
+   * returns true if the field is missing or null.
+   */
+  public boolean isNull(String name) {
+    int index = indexOf(name);
+    return index < 0 || text.startsWith("null", starts[index]);
+  }
+
+  /**
+   * returns the field as string, in the same manner as JSONObject#optString.
+   * string values are unescaped, and other values are returned as its JSON text.
+   */
+  public String optString(String name) {
+    int index = indexOf(name);
+    if (index < 0) {
+      return "";
+    }
+    if (text.charAt(starts[index]) == '"') {
+      try {
+        return readerFor(index).nextString();
+      } catch (JSONException exception) {
+        return "";
+      }
+    }
+    return text.substring(starts[index], ends[index]);
+  }
+
+  /**
+   * decode the field as JSONObject, or returns null if the field is missing or not an object.
+   */
+  @Nullable
+  public JSONObject optJSONObject(String name) {
+    Object value = opt(name);
+    return value instanceof JSONObject ? (JSONObject) value : null;
+  }
+
+  /**
+   * decode the field as JSONArray, or returns null if the field is missing or not an array.
+   */
+  @Nullable
+  public JSONArray optJSONArray(String name) {
+    Object value = opt(name);
+    return value instanceof JSONArray ? (JSONArray) value : null;
+  }
+
+  @Nullable
+  private Object opt(String name) {
+    int index = indexOf(name);
+    if (index < 0) {
+      return null;
+    }
+    try {
+      return readerFor(index).nextValue();
+    } catch (JSONException exception) {
+      return null;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return text;
+  }
+}
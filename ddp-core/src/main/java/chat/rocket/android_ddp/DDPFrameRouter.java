@@ -0,0 +1,228 @@
+package chat.rocket.android_ddp;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import bolts.TaskCompletionSource;
+
+/**
+ * Pending-call table for DDP requests.
+ * Each inbound frame is looked up once by its "msg" and "id",
+ * so the cost per frame doesn't depend on the number of calls in flight.
+ * The timeouts of the calls are tracked by the shared TimeoutWheel.
+ */
+class DDPFrameRouter {
+  private final HashMap<String, List<PendingCall>> pendingCalls = new HashMap<>();
+  private final TimeoutWheel timeoutWheel;
+  private final TimeoutListener timeoutListener;
+
+  DDPFrameRouter(TimeoutWheel timeoutWheel, TimeoutListener timeoutListener) {
+    this.timeoutWheel = timeoutWheel;
+    this.timeoutListener = timeoutListener;
+  }
+
+  private static String keyOf(String msg, @Nullable String id) {
+    return id == null ? msg : msg + ":" + id;
+  }
+
+  /**
+   * register the handler for the frame with the given msg and id.
+   * the handler is removed when it returns true, or when the connection is lost.
+   */
+  public void register(String msg, @Nullable String id,
+                       TaskCompletionSource<?> task, FrameHandler handler) {
+    register(msg, id, task, null, 0, handler);
+  }
+
+  /**
+   * register the handler, which expires after timeoutMs.
+   * the label (e.g. method name) is passed to the TimeoutListener on expiration.
+   */
+  public synchronized void register(String msg, @Nullable String id,
+                                    TaskCompletionSource<?> task, @Nullable String label,
+                                    long timeoutMs, FrameHandler handler) {
+    String key = keyOf(msg, id);
+    List<PendingCall> calls = pendingCalls.get(key);
+    if (calls == null) {
+      calls = new ArrayList<>(1);
+      pendingCalls.put(key, calls);
+    }
+    PendingCall call = new PendingCall(this, key, msg, label, task, handler);
+    calls.add(call);
+    if (timeoutMs > 0) {
+      timeoutWheel.schedule(call, timeoutMs);
+    }
+  }
+
+  /**
+   * remove the handler registered with the task.
+   *
+   * @return true if the handler was still pending.
+   */
+  public synchronized boolean unregister(String msg, @Nullable String id,
+                                         TaskCompletionSource<?> task) {
+    String key = keyOf(msg, id);
+    List<PendingCall> calls = pendingCalls.get(key);
+    if (calls == null) {
+      return false;
+    }
+
+    boolean removed = false;
+    Iterator<PendingCall> iterator = calls.iterator();
+    while (iterator.hasNext()) {
+      PendingCall call = iterator.next();
+      if (call.task == task) {
+        iterator.remove();
+        timeoutWheel.cancel(call);
+        removed = true;
+      }
+    }
+    if (calls.isEmpty()) {
+      pendingCalls.remove(key);
+    }
+    return removed;
+  }
+
+  /**
+   * route the frame to the handlers waiting for it.
+   */
+  public void dispatch(String msg, @Nullable String id, DDPFrame response) {
+    String key = keyOf(msg, id);
+    List<PendingCall> calls;
+    synchronized (this) {
+      calls = pendingCalls.remove(key);
+    }
+    if (calls == null) {
+      return;
+    }
+
+    // handlers are called outside the lock, because the continuations of the task
+    // might issue another request on this thread.
+    for (PendingCall call : calls) {
+      boolean finished;
+      try {
+        finished = call.handler.handle(response);
+      } catch (Exception exception) {
+        call.task.trySetError(exception);
+        finished = true;
+      }
+      if (finished) {
+        timeoutWheel.cancel(call);
+      } else {
+        synchronized (this) {
+          List<PendingCall> remaining = pendingCalls.get(key);
+          if (remaining == null) {
+            remaining = new ArrayList<>(1);
+            pendingCalls.put(key, remaining);
+          }
+          remaining.add(call);
+        }
+      }
+    }
+  }
+
+  /**
+   * fail all the pending calls. (e.g. the connection is lost)
+   */
+  public void failAll(Exception exception) {
+    List<PendingCall> calls = new ArrayList<>();
+    synchronized (this) {
+      for (List<PendingCall> entry : pendingCalls.values()) {
+        calls.addAll(entry);
+      }
+      pendingCalls.clear();
+    }
+
+    for (PendingCall call : calls) {
+      timeoutWheel.cancel(call);
+      call.task.trySetError(exception);
+    }
+  }
+
+  /**
+   * fail only the pending calls waiting for the given types of frames.
+   */
+  public void fail(Exception exception, String... msgs) {
+    List<PendingCall> calls = new ArrayList<>();
+    synchronized (this) {
+      Iterator<List<PendingCall>> entries = pendingCalls.values().iterator();
+      while (entries.hasNext()) {
+        List<PendingCall> entry = entries.next();
+        Iterator<PendingCall> iterator = entry.iterator();
+        while (iterator.hasNext()) {
+          PendingCall call = iterator.next();
+          for (String msg : msgs) {
+            if (msg.equals(call.msg)) {
+              calls.add(call);
+              iterator.remove();
+              break;
+            }
+          }
+        }
+        if (entry.isEmpty()) {
+          entries.remove();
+        }
+      }
+    }
+
+    for (PendingCall call : calls) {
+      timeoutWheel.cancel(call);
+      call.task.trySetError(exception);
+    }
+  }
+
+  private void onExpired(PendingCall call) {
+    synchronized (this) {
+      List<PendingCall> calls = pendingCalls.get(call.key);
+      if (calls == null || !calls.remove(call)) {
+        // already handled.
+        return;
+      }
+      if (calls.isEmpty()) {
+        pendingCalls.remove(call.key);
+      }
+    }
+    timeoutListener.onTimeout(call.msg, call.label, call.task);
+  }
+
+  interface FrameHandler {
+    /**
+     * @return true if the pending call is finished with this frame.
+     */
+    boolean handle(DDPFrame response) throws Exception;
+  }
+
+  interface TimeoutListener {
+    /**
+     * called on the timer thread when the pending call is expired.
+     */
+    void onTimeout(String msg, @Nullable String label, TaskCompletionSource<?> task);
+  }
+
+  private static class PendingCall extends TimeoutWheel.Timeout {
+    final DDPFrameRouter router;
+    final String key;
+    final String msg;
+    final String label;
+    final TaskCompletionSource<?> task;
+    final FrameHandler handler;
+
+    PendingCall(DDPFrameRouter router, String key, String msg, @Nullable String label,
+                TaskCompletionSource<?> task, FrameHandler handler) {
+      this.router = router;
+      this.key = key;
+      this.msg = msg;
+      this.label = label;
+      this.task = task;
+      this.handler = handler;
+    }
+
+    @Override
+    protected void onTimeout() {
+      router.onExpired(this);
+    }
+  }
+}
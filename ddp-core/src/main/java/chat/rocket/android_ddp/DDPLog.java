@@ -0,0 +1,96 @@
+package chat.rocket.android_ddp;
+
+import javax.annotation.Nullable;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Logging facade of the DDP client, which has no dependency on the platform.
+ * The messages go to java.util.logging by default. On Android, install the
+ * printer of android-ddp with setPrinter().
+ */
+public class DDPLog {
+  // same values as android.util.Log.
+  public static final int DEBUG = 3;
+  public static final int WARN = 5;
+  public static final int ERROR = 6;
+
+  private static volatile Printer printer = new JavaLoggingPrinter();
+
+  public static void setPrinter(Printer printer) {
+    DDPLog.printer = printer;
+  }
+
+  public static void d(String log, Object... args) {
+    print(DEBUG, null, log, args);
+  }
+
+  public static void d(Throwable throwable) {
+    print(DEBUG, throwable, throwable.getMessage());
+  }
+
+  public static void d(Throwable throwable, String log, Object... args) {
+    print(DEBUG, throwable, log, args);
+  }
+
+  public static void w(String log, Object... args) {
+    print(WARN, null, log, args);
+  }
+
+  public static void w(Throwable throwable) {
+    print(WARN, throwable, throwable.getMessage());
+  }
+
+  public static void w(Throwable throwable, String log, Object... args) {
+    print(WARN, throwable, log, args);
+  }
+
+  public static void e(String log, Object... args) {
+    print(ERROR, null, log, args);
+  }
+
+  public static void e(Throwable throwable) {
+    print(ERROR, throwable, throwable.getMessage());
+  }
+
+  public static void e(Throwable throwable, String log, Object... args) {
+    print(ERROR, throwable, log, args);
+  }
+
+  private static void print(int priority, @Nullable Throwable throwable, @Nullable String log,
+                            Object... args) {
+    String message = log == null || args.length == 0 ? log : String.format(log, args);
+    printer.print(priority, getTag(), message, throwable);
+  }
+
+  private static String getTag() {
+    // the first frame outside of this class is the caller.
+    for (StackTraceElement element : new Throwable().getStackTrace()) {
+      String className = element.getClassName();
+      if (!className.equals(DDPLog.class.getName())) {
+        return className.substring(className.lastIndexOf('.') + 1);
+      }
+    }
+    return "DDP";
+  }
+
+  public interface Printer {
+    void print(int priority, String tag, @Nullable String message,
+               @Nullable Throwable throwable);
+  }
+
+  private static class JavaLoggingPrinter implements Printer {
+    private final Logger logger = Logger.getLogger("chat.rocket.android_ddp");
+
+    @Override
+    public void print(int priority, String tag, @Nullable String message,
+                      @Nullable Throwable throwable) {
+      Level level = priority >= ERROR ? Level.SEVERE
+          : priority >= WARN ? Level.WARNING : Level.FINE;
+      if (logger.isLoggable(level)) {
+        logger.log(level, tag + ": " + message, throwable);
+      }
+    }
+  }
+}
@@ -0,0 +1,231 @@
+package chat.rocket.android_ddp;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Metrics of a DDP client: RPC latency, timeouts and errors per method,
+ * inbound traffic per message type, and the time from "sub" to "ready" per subscription name.
+ * Recorded by DDPClientImpl, and read through DDPClient#getMetrics() as a Snapshot.
+ */
+public class DDPMetrics {
+  private final HashMap<String, Histogram> rpcLatencies = new HashMap<>();
+  private final HashMap<String, Histogram> subReadyTimes = new HashMap<>();
+  private final HashMap<String, Long> rpcTimeouts = new HashMap<>();
+  private final HashMap<String, Long> rpcErrors = new HashMap<>();
+  private final HashMap<String, Traffic> inbound = new HashMap<>();
+  private long startedAt = System.currentTimeMillis();
+
+  synchronized void recordRpc(String method, long latencyMs) {
+    histogramOf(rpcLatencies, method).record(latencyMs);
+  }
+
+  synchronized void recordRpcError(String method) {
+    increment(rpcErrors, method);
+  }
+
+  synchronized void recordTimeout(String method) {
+    increment(rpcTimeouts, method);
+  }
+
+  synchronized void recordSubReady(String name, long elapsedMs) {
+    histogramOf(subReadyTimes, name).record(elapsedMs);
+  }
+
+  synchronized void recordInbound(String msg, int length) {
+    Traffic traffic = inbound.get(msg);
+    if (traffic == null) {
+      traffic = new Traffic();
+      inbound.put(msg, traffic);
+    }
+    traffic.frames++;
+    traffic.chars += length;
+  }
+
+  private static Histogram histogramOf(HashMap<String, Histogram> histograms, String key) {
+    Histogram histogram = histograms.get(key);
+    if (histogram == null) {
+      histogram = new Histogram();
+      histograms.put(key, histogram);
+    }
+    return histogram;
+  }
+
+  private static void increment(HashMap<String, Long> counts, String key) {
+    Long count = counts.get(key);
+    counts.put(key, count == null ? 1 : count + 1);
+  }
+
+  /**
+   * returns the copy of the current metrics.
+   */
+  public synchronized Snapshot snapshot() {
+    Snapshot snapshot = new Snapshot();
+    snapshot.elapsedMs = System.currentTimeMillis() - startedAt;
+    for (Map.Entry<String, Histogram> entry : rpcLatencies.entrySet()) {
+      snapshot.rpcLatencies.put(entry.getKey(), entry.getValue().copy());
+    }
+    for (Map.Entry<String, Histogram> entry : subReadyTimes.entrySet()) {
+      snapshot.subReadyTimes.put(entry.getKey(), entry.getValue().copy());
+    }
+    snapshot.rpcTimeouts.putAll(rpcTimeouts);
+    snapshot.rpcErrors.putAll(rpcErrors);
+    for (Map.Entry<String, Traffic> entry : inbound.entrySet()) {
+      snapshot.inbound.put(entry.getKey(), entry.getValue().copy());
+    }
+    return snapshot;
+  }
+
+  /**
+   * clear all the metrics.
+   */
+  public synchronized void reset() {
+    rpcLatencies.clear();
+    subReadyTimes.clear();
+    rpcTimeouts.clear();
+    rpcErrors.clear();
+    inbound.clear();
+    startedAt = System.currentTimeMillis();
+  }
+
+  public static class Snapshot {
+    /**
+     * time since the metrics started (or was reset).
+     */
+    public long elapsedMs;
+    public final HashMap<String, Histogram> rpcLatencies = new HashMap<>();
+    public final HashMap<String, Histogram> subReadyTimes = new HashMap<>();
+    public final HashMap<String, Long> rpcTimeouts = new HashMap<>();
+    public final HashMap<String, Long> rpcErrors = new HashMap<>();
+    public final HashMap<String, Traffic> inbound = new HashMap<>();
+
+    /**
+     * returns the average number of the inbound frames per second of the type.
+     */
+    public double getFramesPerSecond(String msg) {
+      Traffic traffic = inbound.get(msg);
+      return traffic == null || elapsedMs == 0 ? 0 : traffic.frames * 1000.0 / elapsedMs;
+    }
+
+    /**
+     * returns the average length of the inbound frames per second of the type.
+     */
+    public double getCharsPerSecond(String msg) {
+      Traffic traffic = inbound.get(msg);
+      return traffic == null || elapsedMs == 0 ? 0 : traffic.chars * 1000.0 / elapsedMs;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder("DDPMetrics[elapsed=").append(elapsedMs)
+          .append("ms]");
+      for (Map.Entry<String, Histogram> entry : rpcLatencies.entrySet()) {
+        String method = entry.getKey();
+        builder.append("\n rpc ").append(method).append(": ").append(entry.getValue())
+            .append(", timeouts=").append(valueOf(rpcTimeouts, method))
+            .append(", errors=").append(valueOf(rpcErrors, method));
+      }
+      for (Map.Entry<String, Long> entry : rpcTimeouts.entrySet()) {
+        if (!rpcLatencies.containsKey(entry.getKey())) {
+          builder.append("\n rpc ").append(entry.getKey()).append(": timeouts=")
+              .append(entry.getValue());
+        }
+      }
+      for (Map.Entry<String, Histogram> entry : subReadyTimes.entrySet()) {
+        builder.append("\n sub ").append(entry.getKey()).append(": ").append(entry.getValue());
+      }
+      for (Map.Entry<String, Traffic> entry : inbound.entrySet()) {
+        builder.append("\n inbound ").append(entry.getKey()).append(": ")
+            .append(entry.getValue())
+            .append(String.format(" (%.1f frames/s)", getFramesPerSecond(entry.getKey())));
+      }
+      return builder.toString();
+    }
+
+    private static long valueOf(HashMap<String, Long> counts, String key) {
+      Long count = counts.get(key);
+      return count == null ? 0 : count;
+    }
+  }
+
+  /**
+   * histogram of the durations, with fixed buckets.
+   */
+  public static class Histogram {
+    /**
+     * upper bounds of the buckets in milliseconds. the last bucket has no upper bound.
+     */
+    public static final long[] BUCKET_BOUNDS_MS =
+        {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+    public final long[] counts = new long[BUCKET_BOUNDS_MS.length + 1];
+    public long count;
+    public long totalMs;
+    public long maxMs;
+
+    void record(long durationMs) {
+      int index = 0;
+      while (index < BUCKET_BOUNDS_MS.length && durationMs > BUCKET_BOUNDS_MS[index]) {
+        index++;
+      }
+      counts[index]++;
+      count++;
+      totalMs += durationMs;
+      maxMs = Math.max(maxMs, durationMs);
+    }
+
+    Histogram copy() {
+      Histogram histogram = new Histogram();
+      System.arraycopy(counts, 0, histogram.counts, 0, counts.length);
+      histogram.count = count;
+      histogram.totalMs = totalMs;
+      histogram.maxMs = maxMs;
+      return histogram;
+    }
+
+    public long getAverageMs() {
+      return count == 0 ? 0 : totalMs / count;
+    }
+
+    /**
+     * returns the upper bound of the bucket containing the percentile. (e.g. 0.99)
+     */
+    public long getPercentileMs(double percentile) {
+      long threshold = (long) Math.ceil(count * percentile);
+      long accumulated = 0;
+      for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+        accumulated += counts[i];
+        if (accumulated >= threshold) {
+          return Math.min(BUCKET_BOUNDS_MS[i], maxMs);
+        }
+      }
+      return maxMs;
+    }
+
+    @Override
+    public String toString() {
+      return "count=" + count + ", avg=" + getAverageMs() + "ms, p50=" + getPercentileMs(0.5)
+          + "ms, p99=" + getPercentileMs(0.99) + "ms, max=" + maxMs + "ms";
+    }
+  }
+
+  /**
+   * inbound traffic of a message type. the length is counted in chars of the JSON text.
+   */
+  public static class Traffic {
+    public long frames;
+    public long chars;
+
+    Traffic copy() {
+      Traffic traffic = new Traffic();
+      traffic.frames = frames;
+      traffic.chars = chars;
+      return traffic;
+    }
+
+    @Override
+    public String toString() {
+      return "frames=" + frames + ", chars=" + chars;
+    }
+  }
+}
@@ -1,6 +1,6 @@
 package chat.rocket.android_ddp;
 
-import android.support.annotation.NonNull;
+import javax.annotation.Nonnull;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -77,13 +77,30 @@ public class DDPSubscription {
   }
 
   public static class Added extends DocEvent {
-    public JSONObject fields;
+    private JSONObject fields;
+    private DDPFrame frame;
 
     public Added(DDPClient client, String collection, String docID, JSONObject fields) {
       super(client, collection, docID);
       this.fields = fields;
     }
 
+    /*package*/ Added(DDPClient client, DDPFrame frame) {
+      super(client, frame.collection, frame.id);
+      this.frame = frame;
+    }
+
+    /**
+     * fields of the document. decoded from the frame on the first access.
+     */
+    public synchronized JSONObject getFields() {
+      if (frame != null) {
+        fields = frame.optJSONObject("fields");
+        frame = null;
+      }
+      return fields;
+    }
+
     public static class Before extends Added {
       public String before;
 
@@ -92,19 +109,57 @@ public class DDPSubscription {
         super(client, collection, docID, fields);
         this.before = before;
       }
+
+      /*package*/ Before(DDPClient client, DDPFrame frame) {
+        super(client, frame);
+        this.before = frame.isNull("before") ? null : frame.optString("before");
+      }
     }
   }
 
   public static class Changed extends DocEvent {
-    public JSONObject fields;
-    public JSONArray cleared;
+    private JSONObject fields;
+    private JSONArray cleared;
+    private DDPFrame frame;
 
     public Changed(DDPClient client, String collection, String docID, JSONObject fields,
-                   @NonNull JSONArray cleared) {
+                   @Nonnull JSONArray cleared) {
       super(client, collection, docID);
       this.fields = fields;
       this.cleared = cleared;
     }
+
+    /*package*/ Changed(DDPClient client, DDPFrame frame) {
+      super(client, frame.collection, frame.id);
+      this.frame = frame;
+    }
+
+    private void decode() {
+      if (frame != null) {
+        fields = frame.optJSONObject("fields");
+        JSONArray decoded = frame.optJSONArray("cleared");
+        // absent, null or malformed "cleared" is no cleared field.
+        cleared = decoded != null ? decoded : new JSONArray();
+        frame = null;
+      }
+    }
+
+    /**
+     * changed fields of the document. decoded from the frame on the first access.
+     */
+    public synchronized JSONObject getFields() {
+      decode();
+      return fields;
+    }
+
+    /**
+     * names of the removed fields. decoded from the frame on the first access.
+     */
+    @Nonnull
+    public synchronized JSONArray getCleared() {
+      decode();
+      return cleared;
+    }
   }
 
   public static class Removed extends DocEvent {
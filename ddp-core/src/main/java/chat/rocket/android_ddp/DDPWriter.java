@@ -0,0 +1,197 @@
+package chat.rocket.android_ddp;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.Iterator;
+import okio.BufferedSink;
+
+/**
+ * Streaming JSON writer for outbound DDP frames.
+ * Frames are written straight into the sink (usually an okio Buffer, whose segments are pooled),
+ * without building JSONObject trees and their string representations.
+ * JSONObject and JSONArray values (e.g. method params) are streamed as they are.
+ */
+public class DDPWriter {
+  private static final String[] REPLACEMENT_CHARS = new String[128];
+
+  static {
+    for (int i = 0; i < 0x20; i++) {
+      REPLACEMENT_CHARS[i] = String.format("\\u%04x", i);
+    }
+    REPLACEMENT_CHARS['"'] = "\\\"";
+    REPLACEMENT_CHARS['\\'] = "\\\\";
+    REPLACEMENT_CHARS['\t'] = "\\t";
+    REPLACEMENT_CHARS['\b'] = "\\b";
+    REPLACEMENT_CHARS['\n'] = "\\n";
+    REPLACEMENT_CHARS['\r'] = "\\r";
+    REPLACEMENT_CHARS['\f'] = "\\f";
+  }
+
+  private final BufferedSink sink;
+  // whether the object/array at each depth already has an element.
+  private boolean[] hasElement = new boolean[8];
+  private int depth;
+  private boolean afterName;
+
+  public DDPWriter(BufferedSink sink) {
+    this.sink = sink;
+  }
+
+  public DDPWriter beginObject() throws IOException {
+    return open('{');
+  }
+
+  public DDPWriter endObject() throws IOException {
+    return close('}');
+  }
+
+  public DDPWriter beginArray() throws IOException {
+    return open('[');
+  }
+
+  public DDPWriter endArray() throws IOException {
+    return close(']');
+  }
+
+  public DDPWriter name(String name) throws IOException {
+    beforeValue();
+    writeString(name);
+    sink.writeByte(':');
+    afterName = true;
+    return this;
+  }
+
+  public DDPWriter value(String value) throws IOException {
+    if (value == null) {
+      return nullValue();
+    }
+    beforeValue();
+    writeString(value);
+    return this;
+  }
+
+  public DDPWriter value(long value) throws IOException {
+    beforeValue();
+    sink.writeDecimalLong(value);
+    return this;
+  }
+
+  public DDPWriter value(boolean value) throws IOException {
+    beforeValue();
+    sink.writeUtf8(value ? "true" : "false");
+    return this;
+  }
+
+  public DDPWriter nullValue() throws IOException {
+    beforeValue();
+    sink.writeUtf8("null");
+    return this;
+  }
+
+  /**
+   * write the value of JSONObject, JSONArray, String, Number, Boolean or null.
+   */
+  public DDPWriter value(Object value) throws IOException {
+    if (value == null || value == JSONObject.NULL) {
+      return nullValue();
+    } else if (value instanceof String) {
+      return value((String) value);
+    } else if (value instanceof Boolean) {
+      return value(((Boolean) value).booleanValue());
+    } else if (value instanceof Integer || value instanceof Long
+        || value instanceof Short || value instanceof Byte) {
+      return value(((Number) value).longValue());
+    } else if (value instanceof Number) {
+      beforeValue();
+      try {
+        sink.writeUtf8(JSONObject.numberToString((Number) value));
+      } catch (JSONException exception) {
+        // NaN or infinity.
+        throw new IOException(exception);
+      }
+      return this;
+    } else if (value instanceof JSONObject) {
+      JSONObject object = (JSONObject) value;
+      beginObject();
+      Iterator<String> keys = object.keys();
+      while (keys.hasNext()) {
+        String key = keys.next();
+        name(key).value(object.opt(key));
+      }
+      return endObject();
+    } else if (value instanceof JSONArray) {
+      JSONArray array = (JSONArray) value;
+      beginArray();
+      for (int i = 0; i < array.length(); i++) {
+        value(array.opt(i));
+      }
+      return endArray();
+    }
+    return value(value.toString());
+  }
+
+  private DDPWriter open(char bracket) throws IOException {
+    beforeValue();
+    sink.writeByte(bracket);
+    if (depth == hasElement.length) {
+      boolean[] newHasElement = new boolean[depth * 2];
+      System.arraycopy(hasElement, 0, newHasElement, 0, depth);
+      hasElement = newHasElement;
+    }
+    hasElement[depth++] = false;
+    return this;
+  }
+
+  private DDPWriter close(char bracket) throws IOException {
+    depth--;
+    sink.writeByte(bracket);
+    return this;
+  }
+
+  private void beforeValue() throws IOException {
+    if (afterName) {
+      afterName = false;
+      return;
+    }
+    if (depth > 0) {
+      if (hasElement[depth - 1]) {
+        sink.writeByte(',');
+      }
+      hasElement[depth - 1] = true;
+    }
+  }
+
+  private void writeString(String value) throws IOException {
+    sink.writeByte('"');
+    int last = 0;
+    int length = value.length();
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      String replacement;
+      if (c < 128) {
+        replacement = REPLACEMENT_CHARS[c];
+        if (replacement == null) {
+          continue;
+        }
+      } else if (c == '\u2028') {
+        replacement = "\\u2028";
+      } else if (c == '\u2029') {
+        replacement = "\\u2029";
+      } else {
+        continue;
+      }
+      if (last < i) {
+        sink.writeUtf8(value, last, i);
+      }
+      sink.writeUtf8(replacement);
+      last = i + 1;
+    }
+    if (last < length) {
+      sink.writeUtf8(value, last, length);
+    }
+    sink.writeByte('"');
+  }
+}
@@ -0,0 +1,85 @@
+package chat.rocket.android_ddp;
+
+import java.util.ArrayDeque;
+
+/**
+ * Small pool of dispatcher threads shared by the inbound queues of all the clients.
+ * A queue with pending frames is served by one thread at a time, so the frames of a connection
+ * are dispatched in order. After QUANTUM frames the queue goes back to the end of the line,
+ * so a busy server can't starve the others.
+ * Threads are started only while there is work, and stop after being idle for KEEP_ALIVE_MS.
+ * Only decoding and routing run here. The consumers run on the CallbackLane of each client,
+ * so a slow consumer doesn't hold the threads shared by the other clients.
+ */
+class DispatchLoop {
+  private static final int DEFAULT_MAX_THREADS = 2;
+  private static final int QUANTUM = 32;
+  private static final long KEEP_ALIVE_MS = 60000;
+
+  private static DispatchLoop shared;
+
+  private final int maxThreads;
+  private final ArrayDeque<InboundQueue> readyQueues = new ArrayDeque<>();
+  private int threadCount;
+  private int idleCount;
+  private int threadSeq;
+
+  DispatchLoop(int maxThreads) {
+    this.maxThreads = maxThreads;
+  }
+
+  /**
+   * returns the loop shared by all the DDP clients in this process.
+   */
+  public static synchronized DispatchLoop shared() {
+    if (shared == null) {
+      shared = new DispatchLoop(DEFAULT_MAX_THREADS);
+    }
+    return shared;
+  }
+
+  /**
+   * queue the inbound queue which has frames to dispatch.
+   * the queue must not be scheduled already.
+   */
+  public synchronized void schedule(InboundQueue queue) {
+    readyQueues.addLast(queue);
+    if (readyQueues.size() > idleCount && threadCount < maxThreads) {
+      threadCount++;
+      Thread thread = new Thread(this::runWorker, "DDP-Dispatcher-" + (++threadSeq));
+      thread.setDaemon(true);
+      thread.start();
+    } else {
+      notify();
+    }
+  }
+
+  private void runWorker() {
+    while (true) {
+      final InboundQueue queue;
+      synchronized (this) {
+        long deadline = System.nanoTime() / 1000000 + KEEP_ALIVE_MS;
+        while (readyQueues.isEmpty()) {
+          long remainingMs = deadline - System.nanoTime() / 1000000;
+          if (remainingMs <= 0) {
+            threadCount--;
+            return;
+          }
+          idleCount++;
+          try {
+            wait(remainingMs);
+          } catch (InterruptedException exception) {
+            // re-check the queues.
+          } finally {
+            idleCount--;
+          }
+        }
+        queue = readyQueues.pollFirst();
+      }
+
+      if (queue.drain(QUANTUM)) {
+        schedule(queue);
+      }
+    }
+  }
+}
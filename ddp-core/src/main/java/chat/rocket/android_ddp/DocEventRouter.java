@@ -0,0 +1,50 @@
+package chat.rocket.android_ddp;
+
+import java.util.HashMap;
+import rx.Observable;
+import rx.subjects.PublishSubject;
+import rx.subjects.SerializedSubject;
+import rx.subjects.Subject;
+
+/**
+ * Routing table of the document events, keyed by collection name.
+ * Each event is delivered only to the observers of its collection,
+ * so the cost per event doesn't depend on the number of observers of the other collections.
+ */
+class DocEventRouter {
+  private final HashMap<String, Subject<DDPSubscription.DocEvent, DDPSubscription.DocEvent>>
+      routes = new HashMap<>();
+
+  private synchronized Subject<DDPSubscription.DocEvent, DDPSubscription.DocEvent> routeFor(
+      String collection) {
+    Subject<DDPSubscription.DocEvent, DDPSubscription.DocEvent> route = routes.get(collection);
+    if (route == null) {
+      route = new SerializedSubject<>(PublishSubject.create());
+      routes.put(collection, route);
+    }
+    return route;
+  }
+
+  /**
+   * returns the events of the collection.
+   * they are delivered synchronously on the dispatcher, so a slow observer delays
+   * the following frames instead of losing events.
+   */
+  public Observable<DDPSubscription.DocEvent> observe(String collection) {
+    return routeFor(collection).asObservable();
+  }
+
+  public void publish(DDPSubscription.DocEvent event) {
+    if (event.collection == null) {
+      return;
+    }
+
+    final Subject<DDPSubscription.DocEvent, DDPSubscription.DocEvent> route;
+    synchronized (this) {
+      route = routes.get(event.collection);
+    }
+    if (route != null && route.hasObservers()) {
+      route.onNext(event);
+    }
+  }
+}
@@ -0,0 +1,317 @@
+package chat.rocket.android_ddp;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Pull-based reader for DDP frames.
+ * Values are decoded on demand, and EJSON dates ({"$date": millis}) are decoded into Long
+ * so that the consumers don't need to rewrite the JSON trees.
+ * ref: https://docs.meteor.com/api/ejson.html
+ */
+public class EJsonReader {
+  private static final String EJSON_DATE = "$date";
+
+  private final String in;
+  private final int limit;
+  private int pos;
+
+  public EJsonReader(String in) {
+    this(in, 0, in.length());
+  }
+
+  public EJsonReader(String in, int start, int end) {
+    this.in = in;
+    this.pos = start;
+    this.limit = end;
+  }
+
+  /**
+   * parse the text as JSONObject, decoding EJSON values.
+   */
+  public static JSONObject parseObject(String text) throws JSONException {
+    Object value = new EJsonReader(text).nextValue();
+    if (value instanceof JSONObject) {
+      return (JSONObject) value;
+    }
+    throw new JSONException("Value " + text + " cannot be converted to JSONObject");
+  }
+
+  /**
+   * parse the text as JSONArray, decoding EJSON values.
+   */
+  public static JSONArray parseArray(String text) throws JSONException {
+    Object value = new EJsonReader(text).nextValue();
+    if (value instanceof JSONArray) {
+      return (JSONArray) value;
+    }
+    throw new JSONException("Value " + text + " cannot be converted to JSONArray");
+  }
+
+  /**
+   * returns the current position in the text.
+   */
+  public int position() {
+    return pos;
+  }
+
+  /**
+   * returns the position where the next value starts.
+   */
+  public int peekPosition() {
+    return skipSeparators();
+  }
+
+  public void beginObject() throws JSONException {
+    expect('{');
+  }
+
+  public void endObject() throws JSONException {
+    expect('}');
+  }
+
+  public void beginArray() throws JSONException {
+    expect('[');
+  }
+
+  public void endArray() throws JSONException {
+    expect(']');
+  }
+
+  /**
+   * returns true if the current object or array has more elements.
+   */
+  public boolean hasNext() throws JSONException {
+    char c = peekChar();
+    return c != '}' && c != ']';
+  }
+
+  /**
+   * returns true if the next value is null.
+   */
+  public boolean peekNull() throws JSONException {
+    return peekChar() == 'n';
+  }
+
+  public String nextName() throws JSONException {
+    String name = nextString();
+    expect(':');
+    return name;
+  }
+
+  public String nextString() throws JSONException {
+    expect('"');
+    StringBuilder builder = null;
+    int start = pos;
+    while (pos < limit) {
+      char c = in.charAt(pos++);
+      if (c == '"') {
+        if (builder == null) {
+          return in.substring(start, pos - 1);
+        }
+        builder.append(in, start, pos - 1);
+        return builder.toString();
+      } else if (c == '\\') {
+        if (builder == null) {
+          builder = new StringBuilder();
+        }
+        builder.append(in, start, pos - 1);
+        builder.append(readEscapeCharacter());
+        start = pos;
+      }
+    }
+    throw syntaxError("Unterminated string");
+  }
+
+  /**
+   * returns the string value, or null if the next value is null.
+   */
+  public String nextStringOrNull() throws JSONException {
+    if (peekNull()) {
+      nextLiteral();
+      return null;
+    }
+    return nextString();
+  }
+
+  /**
+   * skip the next value, without decoding it.
+   */
+  public void skipValue() throws JSONException {
+    char c = peekChar();
+    if (c == '"') {
+      nextString();
+    } else if (c == '{' || c == '[') {
+      int depth = 0;
+      while (pos < limit) {
+        char d = in.charAt(pos++);
+        if (d == '{' || d == '[') {
+          depth++;
+        } else if (d == '}' || d == ']') {
+          depth--;
+          if (depth == 0) {
+            return;
+          }
+        } else if (d == '"') {
+          pos--;
+          nextString();
+        }
+      }
+      throw syntaxError("Unterminated object");
+    } else {
+      nextLiteral();
+    }
+  }
+
+  /**
+   * decode the next value as JSONObject, JSONArray, String, Number, Boolean or JSONObject.NULL.
+   */
+  public Object nextValue() throws JSONException {
+    char c = peekChar();
+    if (c == '{') {
+      return nextObject();
+    } else if (c == '[') {
+      return nextArray();
+    } else if (c == '"') {
+      return nextString();
+    } else {
+      return nextLiteral();
+    }
+  }
+
+  private Object nextObject() throws JSONException {
+    beginObject();
+    JSONObject object = new JSONObject();
+    while (hasNext()) {
+      String name = nextName();
+      object.put(name, nextValue());
+    }
+    endObject();
+
+    if (object.length() == 1) {
+      Object date = object.opt(EJSON_DATE);
+      if (date instanceof Number) {
+        return ((Number) date).longValue();
+      }
+    }
+    return object;
+  }
+
+  private JSONArray nextArray() throws JSONException {
+    beginArray();
+    JSONArray array = new JSONArray();
+    while (hasNext()) {
+      array.put(nextValue());
+    }
+    endArray();
+    return array;
+  }
+
+  private Object nextLiteral() throws JSONException {
+    int start = skipSeparators();
+    while (pos < limit) {
+      char c = in.charAt(pos);
+      if (c == ',' || c == '}' || c == ']' || c == ':' || isWhitespace(c)) {
+        break;
+      }
+      pos++;
+    }
+    String literal = in.substring(start, pos);
+    if (literal.isEmpty()) {
+      throw syntaxError("Expected literal value");
+    } else if ("null".equals(literal)) {
+      return JSONObject.NULL;
+    } else if ("true".equals(literal)) {
+      return Boolean.TRUE;
+    } else if ("false".equals(literal)) {
+      return Boolean.FALSE;
+    }
+
+    try {
+      if (literal.indexOf('.') < 0 && literal.indexOf('e') < 0 && literal.indexOf('E') < 0) {
+        long value = Long.parseLong(literal);
+        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+          return (int) value;
+        }
+        return value;
+      }
+    } catch (NumberFormatException exception) {
+      // fall through to double.
+    }
+    try {
+      return Double.valueOf(literal);
+    } catch (NumberFormatException exception) {
+      throw syntaxError("Unexpected literal: " + literal);
+    }
+  }
+
+  private char readEscapeCharacter() throws JSONException {
+    if (pos >= limit) {
+      throw syntaxError("Unterminated escape sequence");
+    }
+    char escaped = in.charAt(pos++);
+    switch (escaped) {
+      case 'u':
+        if (pos + 4 > limit) {
+          throw syntaxError("Unterminated escape sequence");
+        }
+        String hex = in.substring(pos, pos + 4);
+        pos += 4;
+        try {
+          return (char) Integer.parseInt(hex, 16);
+        } catch (NumberFormatException exception) {
+          throw syntaxError("Invalid escape sequence: " + hex);
+        }
+      case 't':
+        return '\t';
+      case 'b':
+        return '\b';
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 'f':
+        return '\f';
+      default:
+        return escaped;
+    }
+  }
+
+  private void expect(char expected) throws JSONException {
+    if (peekChar() != expected) {
+      throw syntaxError("Expected " + expected);
+    }
+    pos++;
+  }
+
+  private char peekChar() throws JSONException {
+    skipSeparators();
+    if (pos >= limit) {
+      throw syntaxError("Unexpected end of input");
+    }
+    return in.charAt(pos);
+  }
+
+  /**
+   * commas between the elements are skipped leniently, like whitespaces.
+   */
+  private int skipSeparators() {
+    while (pos < limit) {
+      char c = in.charAt(pos);
+      if (c != ',' && !isWhitespace(c)) {
+        break;
+      }
+      pos++;
+    }
+    return pos;
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+  }
+
+  private JSONException syntaxError(String message) {
+    return new JSONException(message + " at character " + pos);
+  }
+}
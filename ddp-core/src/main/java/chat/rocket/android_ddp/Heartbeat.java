@@ -0,0 +1,112 @@
+package chat.rocket.android_ddp;
+
+import bolts.Task;
+
+/**
+ * Client-side heartbeat, scheduled on the TimeoutWheel.
+ * "ping" is skipped while frames are flowing, and a half-open connection is reported
+ * to the listener when "pong" doesn't arrive in time.
+ */
+class Heartbeat extends TimeoutWheel.Timeout {
+  private final TimeoutWheel timeoutWheel;
+  private final Listener listener;
+  private HeartbeatPolicy policy = HeartbeatPolicy.NONE;
+  private volatile long lastReceivedAt;
+  private long intervalMs;
+  private long pingSentAt;
+  private int generation;
+  private int pingCount;
+  private boolean running;
+
+  Heartbeat(TimeoutWheel timeoutWheel, Listener listener) {
+    this.timeoutWheel = timeoutWheel;
+    this.listener = listener;
+  }
+
+  private static long now() {
+    return System.nanoTime() / 1000000;
+  }
+
+  /**
+   * (re)start the heartbeat for the new connection.
+   */
+  public synchronized void start(HeartbeatPolicy policy) {
+    stop();
+    if (!policy.isEnabled()) {
+      return;
+    }
+    this.policy = policy;
+    intervalMs = policy.minIntervalMs;
+    lastReceivedAt = now();
+    running = true;
+    timeoutWheel.schedule(this, intervalMs);
+  }
+
+  public synchronized void stop() {
+    generation++;
+    running = false;
+    timeoutWheel.cancel(this);
+  }
+
+  /**
+   * called for every inbound frame. cheap enough for the socket reader.
+   */
+  public void onReceived() {
+    lastReceivedAt = now();
+  }
+
+  @Override
+  protected void onTimeout() {
+    final int currentGeneration;
+    final String id;
+    synchronized (this) {
+      if (!running || timeoutWheel.isScheduled(this)) {
+        // stopped, or restarted while this was fired.
+        return;
+      }
+      long idleMs = now() - lastReceivedAt;
+      if (idleMs < intervalMs) {
+        // frames are flowing. no need to ping.
+        intervalMs = policy.minIntervalMs;
+        timeoutWheel.schedule(this, Math.max(1, intervalMs - idleMs));
+        return;
+      }
+      currentGeneration = generation;
+      pingSentAt = now();
+      id = "heartbeat-" + (++pingCount);
+    }
+
+    listener.ping(id, policy.timeoutMs).continueWith(task -> {
+      onPingFinished(currentGeneration, task.isFaulted());
+      return null;
+    });
+  }
+
+  private void onPingFinished(int pingGeneration, boolean faulted) {
+    synchronized (this) {
+      if (pingGeneration != generation || !running) {
+        return;
+      }
+      if (!faulted || lastReceivedAt >= pingSentAt) {
+        // alive. ping less often while the connection stays idle.
+        intervalMs = Math.min(intervalMs * 2, policy.maxIntervalMs);
+        timeoutWheel.schedule(this, intervalMs);
+        return;
+      }
+      generation++;
+      running = false;
+    }
+
+    DDPLog.w("DDP heartbeat timed out. the connection seems to be dead.");
+    listener.onDead();
+  }
+
+  interface Listener {
+    Task<DDPClientCallback.Ping> ping(String id, long timeoutMs);
+
+    /**
+     * called when the connection is considered dead.
+     */
+    void onDead();
+  }
+}
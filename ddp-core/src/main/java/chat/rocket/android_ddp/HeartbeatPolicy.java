@@ -0,0 +1,27 @@
+package chat.rocket.android_ddp;
+
+/**
+ * Policy of the client-side heartbeat.
+ * The client sends DDP "ping" only when nothing is received for the interval.
+ * The interval starts with minIntervalMs, and is doubled up to maxIntervalMs while the connection
+ * stays idle. The connection is declared dead when "pong" doesn't arrive within timeoutMs,
+ * so a dead connection is detected within maxIntervalMs + timeoutMs.
+ */
+public class HeartbeatPolicy {
+  public static final HeartbeatPolicy DEFAULT = new HeartbeatPolicy(15000, 60000, 10000);
+  public static final HeartbeatPolicy NONE = new HeartbeatPolicy(0, 0, 0);
+
+  public final long minIntervalMs;
+  public final long maxIntervalMs;
+  public final long timeoutMs;
+
+  public HeartbeatPolicy(long minIntervalMs, long maxIntervalMs, long timeoutMs) {
+    this.minIntervalMs = minIntervalMs;
+    this.maxIntervalMs = maxIntervalMs;
+    this.timeoutMs = timeoutMs;
+  }
+
+  public boolean isEnabled() {
+    return minIntervalMs > 0;
+  }
+}
@@ -0,0 +1,30 @@
+package chat.rocket.android_ddp;
+
+/**
+ * What to do when the inbound frame queue is full.
+ * Except BLOCK, the frames are queued over the capacity if nothing can be dropped or merged,
+ * and the queue shrinks back after the burst. So the socket reader is never parked,
+ * and keeps answering the pings of the server.
+ */
+public enum InboundOverflowPolicy {
+  /**
+   * queue the frames over the capacity.
+   */
+  GROW,
+
+  /**
+   * the socket reader waits until the dispatcher catches up.
+   * the pings of the server wait too, so the server may close a connection which is only slow.
+   */
+  BLOCK,
+
+  /**
+   * drop the oldest queued presence event. ("changed" of the "users" collection)
+   */
+  DROP_OLDEST_PRESENCE,
+
+  /**
+   * merge the "changed" event into the queued "changed" event of the same document.
+   */
+  COALESCE_CHANGED
+}
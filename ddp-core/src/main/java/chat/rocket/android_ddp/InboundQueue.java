@@ -0,0 +1,304 @@
+package chat.rocket.android_ddp;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/**
+ * Bounded ring buffer between the socket reader and the dispatcher threads.
+ * The socket reader only queues the text of the frames, and the frames are decoded and
+ * dispatched on the DispatchLoop, so a slow consumer doesn't block reading the socket.
+ * The headers of the queued frames are decoded on the reader only when the queue is full.
+ * The ring grows over the capacity in a burst, and shrinks back when the dispatcher catches up.
+ */
+class InboundQueue {
+  private static final String PRESENCE_COLLECTION = "users";
+
+  private final DispatchLoop dispatchLoop;
+  private final FrameConsumer consumer;
+  private Entry[] ring;
+  private int capacity;
+  private InboundOverflowPolicy overflowPolicy;
+  private int head;
+  private int count;
+  // whether this is waiting for or being served by the DispatchLoop.
+  private boolean scheduled;
+  // while the consumers of the frames catch up.
+  private boolean suspended;
+
+  InboundQueue(DispatchLoop dispatchLoop, int capacity, InboundOverflowPolicy overflowPolicy,
+               FrameConsumer consumer) {
+    this.dispatchLoop = dispatchLoop;
+    this.ring = new Entry[capacity];
+    this.capacity = capacity;
+    this.overflowPolicy = overflowPolicy;
+    this.consumer = consumer;
+  }
+
+  /**
+   * change the capacity and the policy. the queued frames are kept.
+   */
+  public synchronized void configure(int capacity, InboundOverflowPolicy overflowPolicy) {
+    this.capacity = capacity;
+    this.overflowPolicy = overflowPolicy;
+    resize(Math.max(capacity, count));
+    notifyAll();
+  }
+
+  private void resize(int length) {
+    Entry[] newRing = new Entry[length];
+    for (int i = 0; i < count; i++) {
+      newRing[i] = entryAt(i);
+    }
+    ring = newRing;
+    head = 0;
+  }
+
+  /**
+   * queue the text of the frame. called on the socket reader.
+   */
+  public void offer(String text) throws InterruptedException {
+    Entry entry = new Entry(text, null);
+    synchronized (this) {
+      while (count >= capacity) {
+        if (overflowPolicy == InboundOverflowPolicy.DROP_OLDEST_PRESENCE
+            && dropOldestPresence()) {
+          break;
+        } else if (overflowPolicy == InboundOverflowPolicy.COALESCE_CHANGED
+            && coalesce(entry)) {
+          return;
+        } else if (overflowPolicy != InboundOverflowPolicy.BLOCK) {
+          // queued over the capacity.
+          break;
+        }
+        wait();
+      }
+      enqueue(entry);
+    }
+  }
+
+  /**
+   * queue the task (e.g. disconnection), which is run after the frames queued before it.
+   * tasks are never dropped, and don't count for the capacity.
+   */
+  public synchronized void offerTask(Runnable task) {
+    enqueue(new Entry(null, task));
+  }
+
+  private void enqueue(Entry entry) {
+    if (count == ring.length) {
+      resize(ring.length * 2);
+    }
+    ring[(head + count) % ring.length] = entry;
+    count++;
+    if (!scheduled && !suspended) {
+      scheduled = true;
+      dispatchLoop.schedule(this);
+    }
+  }
+
+  /**
+   * stop dispatching until resume(). the frames are still queued, under the overflow policy.
+   */
+  public synchronized void suspend() {
+    suspended = true;
+  }
+
+  public synchronized void resume() {
+    suspended = false;
+    if (count > 0 && !scheduled) {
+      scheduled = true;
+      dispatchLoop.schedule(this);
+    }
+  }
+
+  private Entry entryAt(int index) {
+    return ring[(head + index) % ring.length];
+  }
+
+  private void removeAt(int index) {
+    for (int i = index; i > 0; i--) {
+      ring[(head + i) % ring.length] = ring[(head + i - 1) % ring.length];
+    }
+    ring[head] = null;
+    head = (head + 1) % ring.length;
+    count--;
+  }
+
+  private boolean dropOldestPresence() {
+    for (int i = 0; i < count; i++) {
+      DDPFrame frame = entryAt(i).frame();
+      if (frame != null && "changed".equals(frame.msg)
+          && PRESENCE_COLLECTION.equals(frame.collection)) {
+        removeAt(i);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean coalesce(Entry entry) {
+    DDPFrame frame = entry.frame();
+    if (frame == null || !"changed".equals(frame.msg) || frame.id == null) {
+      return false;
+    }
+
+    // merge into the latest queued "changed" of the document.
+    for (int i = count - 1; i >= 0; i--) {
+      Entry queued = entryAt(i);
+      DDPFrame queuedFrame = queued.frame();
+      if (queuedFrame == null || !frame.id.equals(queuedFrame.id)
+          || !isSameCollection(queuedFrame, frame)) {
+        continue;
+      }
+      if (!"changed".equals(queuedFrame.msg)) {
+        // another kind of event for the document is queued, so merging breaks the order.
+        return false;
+      }
+      try {
+        String merged = mergeChanged(queuedFrame, frame);
+        ring[(head + i) % ring.length] = new Entry(merged, null);
+        return true;
+      } catch (JSONException exception) {
+        DDPLog.w(exception, "failed to coalesce changed events");
+        return false;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isSameCollection(DDPFrame frame1, DDPFrame frame2) {
+    return frame1.collection == null ? frame2.collection == null
+        : frame1.collection.equals(frame2.collection);
+  }
+
+  /**
+   * returns the text of the "changed" event equivalent to applying older and newer in order.
+   */
+  private static String mergeChanged(DDPFrame older, DDPFrame newer) throws JSONException {
+    JSONObject fields = older.optJSONObject("fields");
+    if (fields == null) {
+      fields = new JSONObject();
+    }
+    LinkedHashSet<String> cleared = new LinkedHashSet<>();
+    JSONArray olderCleared = older.optJSONArray("cleared");
+    for (int i = 0; olderCleared != null && i < olderCleared.length(); i++) {
+      cleared.add(olderCleared.getString(i));
+    }
+
+    JSONArray newerCleared = newer.optJSONArray("cleared");
+    for (int i = 0; newerCleared != null && i < newerCleared.length(); i++) {
+      String name = newerCleared.getString(i);
+      fields.remove(name);
+      cleared.add(name);
+    }
+    JSONObject newerFields = newer.optJSONObject("fields");
+    if (newerFields != null) {
+      Iterator<String> iterator = newerFields.keys();
+      while (iterator.hasNext()) {
+        String name = iterator.next();
+        fields.put(name, newerFields.get(name));
+        cleared.remove(name);
+      }
+    }
+
+    JSONObject merged = new JSONObject()
+        .put("msg", "changed")
+        .put("collection", newer.collection)
+        .put("id", newer.id);
+    if (fields.length() > 0) {
+      merged.put("fields", fields);
+    }
+    if (!cleared.isEmpty()) {
+      merged.put("cleared", new JSONArray(cleared));
+    }
+    return merged.toString();
+  }
+
+  /**
+   * dispatch up to maxEntries of the queued frames. called on the DispatchLoop.
+   *
+   * @return true if frames are still queued, and this should be scheduled again.
+   */
+  boolean drain(int maxEntries) {
+    for (int i = 0; i < maxEntries; i++) {
+      final Entry entry;
+      synchronized (this) {
+        if (count == 0 || suspended) {
+          scheduled = false;
+          return false;
+        }
+        entry = ring[head];
+        ring[head] = null;
+        head = (head + 1) % ring.length;
+        count--;
+        if (ring.length > capacity && count <= capacity / 2) {
+          // the burst is over.
+          resize(capacity);
+        }
+        // wake up the reader waiting for a free slot.
+        notifyAll();
+      }
+
+      try {
+        if (entry.task != null) {
+          entry.task.run();
+        } else {
+          consumer.onFrame(entry.frame());
+        }
+      } catch (Exception exception) {
+        DDPLog.w(exception, "failed to dispatch DDP frame");
+      }
+    }
+
+    synchronized (this) {
+      scheduled = count > 0 && !suspended;
+      return scheduled;
+    }
+  }
+
+  /**
+   * discard the queued frames.
+   */
+  public synchronized void shutdown() {
+    for (int i = 0; i < count; i++) {
+      ring[(head + i) % ring.length] = null;
+    }
+    head = 0;
+    count = 0;
+    if (ring.length > capacity) {
+      ring = new Entry[capacity];
+    }
+    notifyAll();
+  }
+
+  interface FrameConsumer {
+    void onFrame(DDPFrame frame);
+  }
+
+  private static class Entry {
+    final String text;
+    final Runnable task;
+    private DDPFrame frame;
+    private boolean decoded;
+
+    Entry(String text, Runnable task) {
+      this.text = text;
+      this.task = task;
+    }
+
+    /**
+     * decode the frame once, on the reader (overflow) or on the dispatcher.
+     */
+    DDPFrame frame() {
+      if (!decoded) {
+        frame = text == null ? null : DDPFrame.decode(text);
+        decoded = true;
+      }
+      return frame;
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package chat.rocket.android_ddp;
+
+import javax.annotation.Nullable;
+
+import bolts.Task;
+
+/**
+ * Called on reconnection, before the subscriptions are replayed. (e.g. login with the token)
+ * The calls made from it are sent first. The replay and the calls made by the others
+ * while reconnecting wait for the returned task, as Meteor's onReconnect with "wait" methods.
+ */
+public interface ReconnectHook {
+  /**
+   * @return the task to wait for. null not to wait.
+   */
+  @Nullable
+  Task<?> onReconnect(DDPClientCallback.Connect connect);
+}
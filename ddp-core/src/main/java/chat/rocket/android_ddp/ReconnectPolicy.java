@@ -0,0 +1,33 @@
+package chat.rocket.android_ddp;
+
+import java.util.Random;
+
+/**
+ * Policy for reconnecting after the connection is lost.
+ * The delay grows exponentially with "full jitter",
+ * so that the clients don't reconnect to the server all at once.
+ * ref: https://www.awsarchitectureblog.com/2015/03/backoff.html
+ */
+public class ReconnectPolicy {
+  public static final ReconnectPolicy DEFAULT = new ReconnectPolicy(500, 30000, 10);
+  public static final ReconnectPolicy NONE = new ReconnectPolicy(0, 0, 0);
+
+  public final long initialDelayMs;
+  public final long maxDelayMs;
+  public final int maxAttempts;
+  private final Random random = new Random();
+
+  public ReconnectPolicy(long initialDelayMs, long maxDelayMs, int maxAttempts) {
+    this.initialDelayMs = initialDelayMs;
+    this.maxDelayMs = maxDelayMs;
+    this.maxAttempts = maxAttempts;
+  }
+
+  /**
+   * returns the delay before the attempt. (attempt starts with 0)
+   */
+  public long getDelayMs(int attempt) {
+    long cap = Math.min(maxDelayMs, initialDelayMs << Math.min(attempt, 30));
+    return (long) (random.nextDouble() * cap);
+  }
+}
@@ -0,0 +1,172 @@
+package chat.rocket.android_ddp;
+
+import java.util.ArrayList;
+
+/**
+ * Hashed timer wheel for the timeouts of the pending DDP calls.
+ * Scheduling and cancelling are O(1), and the expired entries of a tick are fired in a batch
+ * on the single timer thread shared by all the clients.
+ * The deadline is rounded up to the tick, which is fine for request timeouts.
+ */
+class TimeoutWheel {
+  private static final long DEFAULT_TICK_MS = 100;
+  private static final int DEFAULT_WHEEL_SIZE = 512;
+
+  private static TimeoutWheel shared;
+
+  private final long tickMs;
+  private final Timeout[] buckets;
+  // expired entries of the current tick. used only by the timer thread.
+  private final ArrayList<Timeout> expired = new ArrayList<>();
+  private long tick;
+  private int pendingCount;
+  private Thread timerThread;
+
+  TimeoutWheel(long tickMs, int wheelSize) {
+    this.tickMs = tickMs;
+    this.buckets = new Timeout[wheelSize];
+  }
+
+  /**
+   * returns the wheel shared by all the DDP clients in this process.
+   */
+  public static synchronized TimeoutWheel shared() {
+    if (shared == null) {
+      shared = new TimeoutWheel(DEFAULT_TICK_MS, DEFAULT_WHEEL_SIZE);
+    }
+    return shared;
+  }
+
+  /**
+   * schedule the timeout. the timeout must not be scheduled already.
+   */
+  public synchronized void schedule(Timeout timeout, long delayMs) {
+    long ticks = Math.max(1, (delayMs + tickMs - 1) / tickMs);
+    long deadline = tick + ticks;
+    int index = (int) (deadline % buckets.length);
+
+    timeout.rounds = (ticks - 1) / buckets.length;
+    timeout.bucket = index;
+    timeout.prev = null;
+    timeout.next = buckets[index];
+    if (timeout.next != null) {
+      timeout.next.prev = timeout;
+    }
+    buckets[index] = timeout;
+    pendingCount++;
+
+    if (timerThread == null) {
+      startTimer();
+    } else if (pendingCount == 1) {
+      notifyAll();
+    }
+  }
+
+  private synchronized void startTimer() {
+    timerThread = new Thread(this::runTimer, "DDP-TimeoutWheel");
+    timerThread.setDaemon(true);
+    timerThread.start();
+  }
+
+  /**
+   * cancel the timeout.
+   *
+   * @return true if the timeout was still scheduled.
+   */
+  public synchronized boolean cancel(Timeout timeout) {
+    if (timeout.bucket < 0) {
+      return false;
+    }
+    unlink(timeout);
+    return true;
+  }
+
+  public synchronized boolean isScheduled(Timeout timeout) {
+    return timeout.bucket >= 0;
+  }
+
+  private void unlink(Timeout timeout) {
+    if (timeout.prev != null) {
+      timeout.prev.next = timeout.next;
+    } else {
+      buckets[timeout.bucket] = timeout.next;
+    }
+    if (timeout.next != null) {
+      timeout.next.prev = timeout.prev;
+    }
+    timeout.prev = null;
+    timeout.next = null;
+    timeout.bucket = -1;
+    pendingCount--;
+  }
+
+  private void runTimer() {
+    long nextTickAt = System.nanoTime() / 1000000 + tickMs;
+    while (true) {
+      try {
+        synchronized (this) {
+          while (pendingCount == 0) {
+            wait();
+            nextTickAt = System.nanoTime() / 1000000 + tickMs;
+          }
+          long now = System.nanoTime() / 1000000;
+          if (now < nextTickAt) {
+            wait(nextTickAt - now);
+            continue;
+          }
+          nextTickAt += tickMs;
+          tick++;
+          expire((int) (tick % buckets.length));
+        }
+      } catch (InterruptedException exception) {
+        // the pending timeouts fire on a new thread. otherwise, schedule() starts one.
+        synchronized (this) {
+          timerThread = null;
+          if (pendingCount > 0) {
+            startTimer();
+          }
+        }
+        return;
+      }
+
+      // fired outside the lock, because the callbacks might schedule another timeout.
+      for (int i = 0; i < expired.size(); i++) {
+        try {
+          expired.get(i).onTimeout();
+        } catch (Exception exception) {
+          DDPLog.w(exception, "timeout callback failed");
+        }
+      }
+      expired.clear();
+    }
+  }
+
+  /**
+   * detach the expired entries in the bucket.
+   */
+  private void expire(int index) {
+    Timeout timeout = buckets[index];
+    while (timeout != null) {
+      Timeout next = timeout.next;
+      if (timeout.rounds > 0) {
+        timeout.rounds--;
+      } else {
+        unlink(timeout);
+        expired.add(timeout);
+      }
+      timeout = next;
+    }
+  }
+
+  /**
+   * entry of the wheel. embedded into the pending call, so that scheduling allocates nothing.
+   */
+  abstract static class Timeout {
+    private Timeout prev;
+    private Timeout next;
+    private int bucket = -1;
+    private long rounds;
+
+    protected abstract void onTimeout();
+  }
+}
@@ -0,0 +1,54 @@
+package chat.rocket.android_ddp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import bolts.Task;
+import chat.rocket.android_ddp.rx.TrafficRecorder;
+
+/**
+ * Replays the traffic recorded by TrafficRecorder into a DDPClient.
+ * The inbound frames are fed to the dispatcher of the client as if they were received
+ * from the server, so the observers of the client (e.g. the doc-event subscribers of the app)
+ * do the same work as in the recorded session. The outbound frames are skipped.
+ */
+public class TrafficReplayer {
+  private final DDPClient client;
+
+  public TrafficReplayer(DDPClient client) {
+    this.client = client;
+  }
+
+  /**
+   * replay the segments in order, on a background thread.
+   *
+   * @param recordedSpeed wait for the recorded intervals between the frames if true,
+   *                      otherwise feed the frames as fast as the dispatcher accepts.
+   * @return the number of the replayed frames.
+   */
+  public Task<Integer> replay(List<File> segments, boolean recordedSpeed) {
+    return Task.callInBackground(() -> {
+      final int[] count = new int[1];
+      final long[] previousTimestamp = new long[1];
+      for (File segment : segments) {
+        TrafficRecorder.read(segment, (timestamp, direction, text) -> {
+          if (direction != TrafficRecorder.INBOUND) {
+            return true;
+          }
+          try {
+            if (recordedSpeed && previousTimestamp[0] > 0 && timestamp > previousTimestamp[0]) {
+              Thread.sleep(timestamp - previousTimestamp[0]);
+            }
+            previousTimestamp[0] = timestamp;
+            client.injectInbound(text);
+          } catch (InterruptedException exception) {
+            throw new IOException("replay interrupted", exception);
+          }
+          count[0]++;
+          return true;
+        });
+      }
+      return count[0];
+    });
+  }
+}
@@ -0,0 +1,157 @@
+package chat.rocket.android_ddp.rx;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import chat.rocket.android_ddp.DDPLog;
+import okhttp3.RequestBody;
+import okhttp3.ws.WebSocket;
+import okio.ByteString;
+
+/**
+ * Outbound frame queue of RxWebSocket.
+ * Frames are written by one writer at a time, in the order they were queued,
+ * so a burst of frames (e.g. subscriptions on startup) is written in one pass of the writer.
+ * While the socket is connecting, frames are held back and written after it is opened.
+ * Each queue has a single writer thread, which is released while idle.
+ */
+class OutboundQueue {
+  public static final long DEFAULT_MAX_QUEUED_BYTES = 1024 * 1024;
+
+  private static final long WRITER_KEEP_ALIVE_SECONDS = 30;
+
+  private final ThreadPoolExecutor writerExecutor = new ThreadPoolExecutor(1, 1,
+      WRITER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, "RxWebSocket-writer");
+        thread.setDaemon(true);
+        return thread;
+      });
+  private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+  private long maxQueuedBytes = DEFAULT_MAX_QUEUED_BYTES;
+  private long queuedBytes;
+  private WebSocket webSocket;
+  private boolean draining;
+  private int priorityFrames;
+
+  public OutboundQueue() {
+    writerExecutor.allowCoreThreadTimeOut(true);
+  }
+
+  public synchronized void setMaxQueuedBytes(long maxQueuedBytes) {
+    this.maxQueuedBytes = maxQueuedBytes;
+  }
+
+  /**
+   * queue the frame. the listener is notified if the frame fails to be written.
+   *
+   * @throws IOException if the queue is full.
+   */
+  public void offer(ByteString bytes, @Nullable WriteFailureListener listener)
+      throws IOException {
+    synchronized (this) {
+      if (queuedBytes + bytes.size() > maxQueuedBytes) {
+        throw new IOException("outbound queue is full: " + queuedBytes + " bytes queued");
+      }
+      frames.addLast(new Frame(bytes, listener));
+      queuedBytes += bytes.size();
+    }
+    scheduleDrain();
+  }
+
+  /**
+   * queue the frame before the frames queued while connecting. (e.g. handshake)
+   * frames offered with this method keep their order among themselves.
+   */
+  public void offerFirst(ByteString bytes, @Nullable WriteFailureListener listener) {
+    final Frame frame = new Frame(bytes, listener);
+    synchronized (this) {
+      if (priorityFrames == 0) {
+        frames.addFirst(frame);
+      } else {
+        ArrayDeque<Frame> rest = new ArrayDeque<>(frames.size());
+        for (int i = 0; i < priorityFrames; i++) {
+          rest.addLast(frames.pollFirst());
+        }
+        rest.addLast(frame);
+        rest.addAll(frames);
+        frames.clear();
+        frames.addAll(rest);
+      }
+      priorityFrames++;
+      queuedBytes += bytes.size();
+    }
+  }
+
+  /**
+   * start writing to the opened socket.
+   */
+  public void open(WebSocket webSocket) {
+    synchronized (this) {
+      this.webSocket = webSocket;
+      priorityFrames = 0;
+    }
+    scheduleDrain();
+  }
+
+  /**
+   * stop writing, and discard the frames queued for the lost connection.
+   * frames queued after this are held back until the next open.
+   */
+  public synchronized void discard() {
+    webSocket = null;
+    priorityFrames = 0;
+    frames.clear();
+    queuedBytes = 0;
+  }
+
+  private void scheduleDrain() {
+    synchronized (this) {
+      if (draining || webSocket == null || frames.isEmpty()) {
+        return;
+      }
+      draining = true;
+    }
+    writerExecutor.execute(this::drain);
+  }
+
+  private void drain() {
+    while (true) {
+      final WebSocket socket;
+      final Frame frame;
+      synchronized (this) {
+        if (webSocket == null || frames.isEmpty()) {
+          draining = false;
+          return;
+        }
+        socket = webSocket;
+        frame = frames.pollFirst();
+        queuedBytes -= frame.bytes.size();
+        if (priorityFrames > 0) {
+          priorityFrames--;
+        }
+      }
+
+      try {
+        socket.sendMessage(RequestBody.create(WebSocket.TEXT, frame.bytes));
+      } catch (IOException | IllegalStateException exception) {
+        DDPLog.w(exception, "failed to write frame");
+        if (frame.listener != null) {
+          frame.listener.onWriteFailure(exception);
+        }
+      }
+    }
+  }
+
+  private static final class Frame {
+    final ByteString bytes;
+    @Nullable final WriteFailureListener listener;
+
+    Frame(ByteString bytes, @Nullable WriteFailureListener listener) {
+      this.bytes = bytes;
+      this.listener = listener;
+    }
+  }
+}
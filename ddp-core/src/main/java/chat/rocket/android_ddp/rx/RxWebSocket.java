@@ -0,0 +1,160 @@
+package chat.rocket.android_ddp.rx;
+
+import java.io.IOException;
+import javax.annotation.Nullable;
+import chat.rocket.android_ddp.DDPLog;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.ws.WebSocket;
+import okhttp3.ws.WebSocketCall;
+import okhttp3.ws.WebSocketListener;
+import okio.Buffer;
+import okio.ByteString;
+import rx.Observable;
+import rx.Subscriber;
+import rx.exceptions.OnErrorNotImplementedException;
+import rx.observables.ConnectableObservable;
+
+public class RxWebSocket {
+  private final OutboundQueue outboundQueue = new OutboundQueue();
+  private OkHttpClient httpClient;
+  private WebSocket webSocket;
+  private WebSocketCall call;
+  private volatile boolean isConnected;
+  // frames sent from the Open callback (e.g. handshake) are written before the held ones.
+  private volatile Thread openingThread;
+  private volatile TrafficRecorder trafficRecorder;
+
+  public RxWebSocket(OkHttpClient client) {
+    httpClient = client;
+    isConnected = false;
+  }
+
+  /**
+   * set the maximum size in bytes of the frames waiting to be written.
+   * sendFrame() fails when the limit is exceeded.
+   */
+  public void setMaxQueuedBytes(long maxQueuedBytes) {
+    outboundQueue.setMaxQueuedBytes(maxQueuedBytes);
+  }
+
+  /**
+   * record the inbound and outbound frames. null to stop recording.
+   */
+  public void setTrafficRecorder(TrafficRecorder trafficRecorder) {
+    this.trafficRecorder = trafficRecorder;
+  }
+
+  public ConnectableObservable<RxWebSocketCallback.Base> connect(String url) {
+    final Request request = new Request.Builder().url(url).build();
+    WebSocketCall call = WebSocketCall.create(httpClient, request);
+    this.call = call;
+
+    return Observable.create(new Observable.OnSubscribe<RxWebSocketCallback.Base>() {
+      @Override
+      public void call(Subscriber<? super RxWebSocketCallback.Base> subscriber) {
+        call.enqueue(new WebSocketListener() {
+          @Override
+          public void onOpen(WebSocket webSocket, Response response) {
+            isConnected = true;
+            RxWebSocket.this.webSocket = webSocket;
+            openingThread = Thread.currentThread();
+            try {
+              subscriber.onNext(new RxWebSocketCallback.Open(RxWebSocket.this.webSocket, response));
+            } finally {
+              openingThread = null;
+              outboundQueue.open(webSocket);
+            }
+          }
+
+          @Override
+          public void onFailure(IOException e, Response response) {
+            try {
+              isConnected = false;
+              outboundQueue.discard();
+              subscriber.onError(new RxWebSocketCallback.Failure(webSocket, e, response));
+            } catch (OnErrorNotImplementedException ex) {
+              DDPLog.w(ex, "OnErrorNotImplementedException ignored");
+            }
+          }
+
+          @Override
+          public void onMessage(ResponseBody responseBody) throws IOException {
+            isConnected = true;
+            RxWebSocketCallback.Message message =
+                new RxWebSocketCallback.Message(webSocket, responseBody);
+            TrafficRecorder recorder = trafficRecorder;
+            if (recorder != null) {
+              recorder.recordInbound(message.responseBodyString);
+            }
+            subscriber.onNext(message);
+          }
+
+          @Override
+          public void onPong(Buffer payload) {
+            isConnected = true;
+            subscriber.onNext(new RxWebSocketCallback.Pong(webSocket, payload));
+          }
+
+          @Override
+          public void onClose(int code, String reason) {
+            isConnected = false;
+            outboundQueue.discard();
+            subscriber.onNext(new RxWebSocketCallback.Close(webSocket, code, reason));
+            subscriber.onCompleted();
+          }
+        });
+      }
+    }).publish();
+  }
+
+  /**
+   * queue the text frame. it is written on the writer thread, after the socket is opened.
+   *
+   * @throws IOException if too many frames are waiting to be written.
+   */
+  public void sendText(String message) throws IOException {
+    sendFrame(ByteString.encodeUtf8(message), null);
+  }
+
+  /**
+   * queue the text frame already encoded in UTF-8.
+   * the listener is notified on the writer thread if the frame fails to be written.
+   *
+   * @throws IOException if too many frames are waiting to be written.
+   */
+  public void sendFrame(ByteString frame, @Nullable WriteFailureListener listener)
+      throws IOException {
+    TrafficRecorder recorder = trafficRecorder;
+    if (recorder != null) {
+      recorder.recordOutbound(frame);
+    }
+    if (openingThread == Thread.currentThread()) {
+      outboundQueue.offerFirst(frame, listener);
+    } else {
+      outboundQueue.offer(frame, listener);
+    }
+  }
+
+  public boolean isConnected() {
+    return isConnected;
+  }
+
+  /**
+   * abort the connection without the closing handshake. (e.g. the connection is half-open)
+   * the observable of connect() emits Failure.
+   */
+  public void cancel() {
+    isConnected = false;
+    if (call != null) {
+      call.cancel();
+    }
+  }
+
+  public void close(int code, String reason) throws IOException {
+    outboundQueue.discard();
+    webSocket.close(code, reason);
+  }
+}
@@ -1,9 +1,7 @@
 package chat.rocket.android_ddp.rx;
 
-import static android.R.attr.type;
-
 import java.io.IOException;
-import chat.rocket.android.log.RCLog;
+import chat.rocket.android_ddp.DDPLog;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
 import okhttp3.ws.WebSocket;
@@ -47,7 +45,7 @@ public class RxWebSocketCallback {
     @Override
     public String toString() {
       if (response != null) {
-        return "[" + type + "] " + response.message();
+        return "[Failure] " + response.message();
       } else {
         return super.toString();
       }
@@ -62,7 +60,7 @@ public class RxWebSocketCallback {
       try {
         this.responseBodyString = responseBody.string();
       } catch (Exception e) {
-        RCLog.e(e, "error in reading response(Message)");
+        DDPLog.e(e, "error in reading response(Message)");
       }
     }
 
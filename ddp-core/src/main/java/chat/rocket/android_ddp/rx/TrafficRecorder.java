@@ -0,0 +1,180 @@
+package chat.rocket.android_ddp.rx;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import chat.rocket.android_ddp.DDPLog;
+import okio.ByteString;
+
+/**
+ * Records the frames of RxWebSocket into rotating log files.
+ * Each segment file is memory-mapped, so recording a frame is just a copy into the memory.
+ * Record layout: [int length][long timestamp (ms)][byte direction][UTF-8 text].
+ * A record with length 0 marks the end of the segment.
+ */
+public class TrafficRecorder {
+  public static final byte INBOUND = 0;
+  public static final byte OUTBOUND = 1;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int HEADER_SIZE = 4 + 8 + 1;
+  private static final String SUFFIX = ".ddplog";
+
+  private final File directory;
+  private final String prefix;
+  private final int segmentSize;
+  private final int maxSegments;
+  private MappedByteBuffer buffer;
+  private long segmentIndex;
+
+  /**
+   * @param directory   directory of the segment files.
+   * @param prefix      prefix of the segment file names.
+   * @param segmentSize size of each segment file in bytes.
+   * @param maxSegments number of the segments kept. the oldest ones are deleted on rotation.
+   */
+  public TrafficRecorder(File directory, String prefix, int segmentSize, int maxSegments) {
+    this.directory = directory;
+    this.prefix = prefix;
+    this.segmentSize = segmentSize;
+    this.maxSegments = maxSegments;
+  }
+
+  public void recordInbound(String text) {
+    record(INBOUND, text.getBytes(UTF_8));
+  }
+
+  public void recordOutbound(ByteString frame) {
+    record(OUTBOUND, frame.toByteArray());
+  }
+
+  private synchronized void record(byte direction, byte[] bytes) {
+    // keep the room for the end marker.
+    int size = HEADER_SIZE + bytes.length + 4;
+    if (size > segmentSize) {
+      DDPLog.w("frame too large to record: %d bytes", bytes.length);
+      return;
+    }
+
+    try {
+      if (buffer == null || buffer.remaining() < size) {
+        rotate();
+      }
+      buffer.putInt(bytes.length);
+      buffer.putLong(System.currentTimeMillis());
+      buffer.put(direction);
+      buffer.put(bytes);
+    } catch (IOException exception) {
+      DDPLog.w(exception, "failed to record frame");
+    }
+  }
+
+  private void rotate() throws IOException {
+    if (buffer == null) {
+      List<File> segments = listSegments(directory, prefix);
+      segmentIndex = segments.isEmpty() ? 0 : indexOf(segments.get(segments.size() - 1)) + 1;
+    } else {
+      segmentIndex++;
+    }
+
+    File file = new File(directory, prefix + "-" + segmentIndex + SUFFIX);
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    try {
+      randomAccessFile.setLength(0);
+      buffer = randomAccessFile.getChannel()
+          .map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    } finally {
+      // the mapping stays valid after the file is closed.
+      randomAccessFile.close();
+    }
+
+    List<File> segments = listSegments(directory, prefix);
+    for (int i = 0; i < segments.size() - maxSegments; i++) {
+      if (!segments.get(i).delete()) {
+        DDPLog.w("failed to delete %s", segments.get(i));
+      }
+    }
+  }
+
+  /**
+   * flush the recorded frames to the file.
+   */
+  public synchronized void flush() {
+    if (buffer != null) {
+      buffer.force();
+    }
+  }
+
+  /**
+   * returns the segment files with the prefix, from the oldest.
+   */
+  public static List<File> listSegments(File directory, String prefix) {
+    File[] files = directory.listFiles(
+        (dir, name) -> name.startsWith(prefix + "-") && name.endsWith(SUFFIX));
+    ArrayList<File> segments = new ArrayList<>();
+    if (files != null) {
+      segments.addAll(Arrays.asList(files));
+    }
+    String namePrefix = prefix + "-";
+    Collections.sort(segments, (file1, file2) -> {
+      long index1 = indexOf(file1, namePrefix);
+      long index2 = indexOf(file2, namePrefix);
+      return index1 < index2 ? -1 : (index1 == index2 ? 0 : 1);
+    });
+    return segments;
+  }
+
+  private long indexOf(File segment) {
+    return indexOf(segment, prefix + "-");
+  }
+
+  private static long indexOf(File segment, String namePrefix) {
+    String name = segment.getName();
+    try {
+      return Long.parseLong(name.substring(namePrefix.length(), name.length() - SUFFIX.length()));
+    } catch (NumberFormatException exception) {
+      return -1;
+    }
+  }
+
+  /**
+   * read the frames recorded in the segment.
+   */
+  public static void read(File segment, FrameVisitor visitor) throws IOException {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(segment, "r");
+    try {
+      ByteBuffer buffer = randomAccessFile.getChannel()
+          .map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+      while (buffer.remaining() >= HEADER_SIZE) {
+        int length = buffer.getInt();
+        if (length <= 0 || length > buffer.remaining() - (HEADER_SIZE - 4)) {
+          break;
+        }
+        long timestamp = buffer.getLong();
+        byte direction = buffer.get();
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        if (!visitor.onFrame(timestamp, direction, new String(bytes, UTF_8))) {
+          break;
+        }
+      }
+    } finally {
+      randomAccessFile.close();
+    }
+  }
+
+  public interface FrameVisitor {
+    /**
+     * @return false to stop reading.
+     */
+    boolean onFrame(long timestamp, byte direction, String text) throws IOException;
+  }
+}
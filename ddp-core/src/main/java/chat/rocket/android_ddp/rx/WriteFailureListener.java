@@ -0,0 +1,8 @@
+package chat.rocket.android_ddp.rx;
+
+/**
+ * notified on the writer thread when a queued frame could not be written.
+ */
+public interface WriteFailureListener {
+  void onWriteFailure(Exception exception);
+}
@@ -0,0 +1,73 @@
+package chat.rocket.android_ddp;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Rocket.Chat shaped scripts for FakeDDPServer.
+ */
+public class FakeDDPScenarios {
+  private static final long BASE_TIMESTAMP = 1481616000000L;
+
+  /**
+   * "activeUsers" publication with count online users, as "added" to "users".
+   */
+  public static FakeDDPServer.Publication activeUsers(int count) {
+    return (connection, params) -> {
+      for (int i = 0; i < count; i++) {
+        connection.send(FakeDDPServer.added("users", userId(i), new JSONObject()
+            .put("username", "user" + i)
+            .put("status", i % 3 == 0 ? "away" : "online")
+            .put("utcOffset", 9)));
+      }
+    };
+  }
+
+  /**
+   * "stream-room-messages" publication pushing count messages of the room
+   * as "changed", the way the server streams new messages.
+   */
+  public static FakeDDPServer.Publication roomMessageStream(int count) {
+    return (connection, params) -> {
+      String roomId = params != null ? params.optString(0, "GENERAL") : "GENERAL";
+      for (int i = 0; i < count; i++) {
+        connection.send(FakeDDPServer.changed("stream-room-messages", "id", new JSONObject()
+            .put("eventName", roomId)
+            .put("args", new JSONArray().put(message(roomId, i)))));
+      }
+    };
+  }
+
+  /**
+   * "loadHistory" of a room with count messages, answering the requested page.
+   * params: [roomId, end, limit, lastLoadedAt]
+   */
+  public static FakeDDPServer.MethodHandler roomHistory(int count) {
+    return params -> {
+      String roomId = params.optString(0, "GENERAL");
+      int limit = params.optInt(2, 50);
+      JSONArray messages = new JSONArray();
+      for (int i = 0; i < Math.min(limit, count); i++) {
+        messages.put(message(roomId, count - 1 - i));
+      }
+      return new JSONObject().put("messages", messages).put("unreadNotLoaded", 0);
+    };
+  }
+
+  private static String userId(int index) {
+    return "user-" + index;
+  }
+
+  private static JSONObject message(String roomId, int index) throws JSONException {
+    JSONObject timestamp = new JSONObject().put("$date", BASE_TIMESTAMP + index * 1000L);
+    return new JSONObject()
+        .put("_id", roomId + "-message-" + index)
+        .put("rid", roomId)
+        .put("msg", "message #" + index)
+        .put("ts", timestamp)
+        .put("u", new JSONObject()
+            .put("_id", userId(index % 100)).put("username", "user" + (index % 100)))
+        .put("_updatedAt", timestamp);
+  }
+}
@@ -0,0 +1,270 @@
+package chat.rocket.android_ddp;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.ws.WebSocket;
+import okhttp3.ws.WebSocketListener;
+import okio.Buffer;
+
+/**
+ * In-process DDP server on MockWebServer, for exercising DDPClient without Rocket.Chat.
+ * Answers "connect" (resuming the requested session), "sub" with "ready", "unsub" with
+ * "nosub", "ping" with "pong" and "method" with a null result.
+ * Every connection is accepted, so the client can reconnect as many times as it likes.
+ *
+ * Scriptable with the documents of the publications, the results of the methods,
+ * the latency of the frames sent and the drops of the connections. (see FakeDDPScenarios)
+ */
+public class FakeDDPServer {
+  private final MockWebServer server = new MockWebServer();
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+  private final Map<String, Publication> publications = new ConcurrentHashMap<>();
+  private final Map<String, MethodHandler> methodHandlers = new ConcurrentHashMap<>();
+  private final List<Connection> connections = new CopyOnWriteArrayList<>();
+  private final List<JSONObject> received = new CopyOnWriteArrayList<>();
+  private volatile long latencyMs;
+
+  public void start() throws IOException {
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) {
+        return new MockResponse().withWebSocketUpgrade(new Connection());
+      }
+    });
+    server.start();
+  }
+
+  public void shutdown() throws IOException {
+    scheduler.shutdownNow();
+    server.shutdown();
+  }
+
+  public String getUrl() {
+    return server.url("/websocket").toString();
+  }
+
+  /**
+   * returns the frames received from the clients, in order.
+   */
+  public List<JSONObject> getReceived() {
+    return new ArrayList<>(received);
+  }
+
+  /**
+   * returns the frames received from the clients with the msg, in order.
+   */
+  public List<JSONObject> getReceived(String msg) {
+    ArrayList<JSONObject> frames = new ArrayList<>();
+    for (JSONObject frame : received) {
+      if (msg.equals(frame.optString("msg"))) {
+        frames.add(frame);
+      }
+    }
+    return frames;
+  }
+
+  /**
+   * close all the open connections, as a server going away.
+   */
+  public void dropConnections() {
+    for (Connection connection : connections) {
+      connection.close(1001, "dropped by FakeDDPServer");
+    }
+  }
+
+  /**
+   * send the documents of the publication on "sub" of name, before its "ready".
+   */
+  public void publish(String name, Publication publication) {
+    publications.put(name, publication);
+  }
+
+  /**
+   * answer "method" of name with the result of the handler.
+   */
+  public void handleMethod(String method, MethodHandler handler) {
+    methodHandlers.put(method, handler);
+  }
+
+  /**
+   * delay every frame sent by latencyMs. should be set before the clients connect,
+   * since the frames already delayed are not reordered.
+   */
+  public void setLatency(long latencyMs) {
+    this.latencyMs = latencyMs;
+  }
+
+  /**
+   * drop the connections every periodMs, count times.
+   */
+  public void dropConnectionsEvery(long periodMs, int count) {
+    for (int i = 1; i <= count; i++) {
+      scheduler.schedule(this::dropConnections, periodMs * i, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  public static JSONObject added(String collection, String id, JSONObject fields)
+      throws JSONException {
+    return new JSONObject().put("msg", "added")
+        .put("collection", collection).put("id", id).put("fields", fields);
+  }
+
+  public static JSONObject changed(String collection, String id, JSONObject fields)
+      throws JSONException {
+    return new JSONObject().put("msg", "changed")
+        .put("collection", collection).put("id", id).put("fields", fields);
+  }
+
+  protected void onFrame(Connection connection, JSONObject frame) throws JSONException {
+    switch (frame.optString("msg")) {
+      case "connect":
+        String session = frame.optString("session", null);
+        connection.send(new JSONObject().put("msg", "connected")
+            .put("session", session != null ? session : UUID.randomUUID().toString()));
+        break;
+      case "ping":
+        JSONObject pong = new JSONObject().put("msg", "pong");
+        if (frame.has("id")) {
+          pong.put("id", frame.getString("id"));
+        }
+        connection.send(pong);
+        break;
+      case "sub":
+        Publication publication = publications.get(frame.optString("name"));
+        if (publication != null) {
+          publication.publish(connection, frame.optJSONArray("params"));
+        }
+        connection.send(new JSONObject().put("msg", "ready")
+            .put("subs", new JSONArray().put(frame.getString("id"))));
+        break;
+      case "unsub":
+        connection.send(new JSONObject().put("msg", "nosub").put("id", frame.getString("id")));
+        break;
+      case "method":
+        MethodHandler handler = methodHandlers.get(frame.optString("method"));
+        Object result = handler != null ? handler.call(frame.optJSONArray("params")) : null;
+        connection.send(new JSONObject().put("msg", "result")
+            .put("id", frame.getString("id"))
+            .put("result", result != null ? result : JSONObject.NULL));
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * a WebSocket connection from a client.
+   */
+  public class Connection implements WebSocketListener {
+    private volatile WebSocket webSocket;
+
+    public void send(JSONObject frame) {
+      send(frame.toString());
+    }
+
+    public void send(String text) {
+      long latency = latencyMs;
+      if (latency > 0) {
+        // a single scheduler thread with the same delay keeps the frames in order.
+        scheduler.schedule(() -> write(text), latency, TimeUnit.MILLISECONDS);
+      } else {
+        write(text);
+      }
+    }
+
+    private synchronized void write(String text) {
+      WebSocket socket = webSocket;
+      if (socket == null) {
+        return;
+      }
+      try {
+        socket.sendMessage(RequestBody.create(WebSocket.TEXT, text));
+      } catch (IOException | IllegalStateException exception) {
+        // closed by the client.
+      }
+    }
+
+    public synchronized void close(int code, String reason) {
+      WebSocket socket = webSocket;
+      webSocket = null;
+      connections.remove(this);
+      if (socket == null) {
+        return;
+      }
+      try {
+        socket.close(code, reason);
+      } catch (IOException | IllegalStateException exception) {
+        // already closed.
+      }
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket, Response response) {
+      this.webSocket = webSocket;
+      connections.add(this);
+    }
+
+    @Override
+    public void onMessage(ResponseBody message) throws IOException {
+      try {
+        JSONObject frame = new JSONObject(message.string());
+        received.add(frame);
+        onFrame(this, frame);
+      } catch (JSONException exception) {
+        throw new IOException(exception);
+      } finally {
+        message.close();
+      }
+    }
+
+    @Override
+    public void onPong(Buffer payload) {
+    }
+
+    @Override
+    public void onClose(int code, String reason) {
+      // the close frame is answered by okhttp-ws.
+      webSocket = null;
+      connections.remove(this);
+    }
+
+    @Override
+    public void onFailure(IOException exception, Response response) {
+      webSocket = null;
+      connections.remove(this);
+    }
+  }
+
+  /**
+   * the documents of a publication, sent with Connection#send() on "sub".
+   */
+  public interface Publication {
+    void publish(Connection connection, JSONArray params) throws JSONException;
+  }
+
+  /**
+   * the result of a method. null for the null result.
+   */
+  public interface MethodHandler {
+    Object call(JSONArray params) throws JSONException;
+  }
+}
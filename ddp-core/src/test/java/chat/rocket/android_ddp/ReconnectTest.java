@@ -0,0 +1,136 @@
+package chat.rocket.android_ddp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import bolts.Task;
+import okhttp3.OkHttpClient;
+import rx.Subscription;
+
+/**
+ * Reconnection of DDPClient against FakeDDPServer dropping the connections.
+ */
+public class ReconnectTest {
+  private static final long TIMEOUT_MS = 10000;
+  // the first retry is within 50 ms. generous, so as not to flake on a busy CI.
+  private static final long RECONNECT_MS = 3000;
+
+  private FakeDDPServer server;
+  private DDPClient client;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new FakeDDPServer();
+    server.start();
+    client = new DDPClient(new OkHttpClient());
+    client.setHeartbeatPolicy(HeartbeatPolicy.NONE);
+    client.setReconnectPolicy(new ReconnectPolicy(50, 200, 10));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.close();
+    server.shutdown();
+  }
+
+  private static <T> T await(Task<T> task) throws Exception {
+    assertTrue("timed out", task.waitForCompletion(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    if (task.isFaulted()) {
+      throw task.getError();
+    }
+    return task.getResult();
+  }
+
+  @Test
+  public void resumesSessionAndReplaysSubscriptions() throws Exception {
+    String session = await(client.connect(server.getUrl())).session;
+    await(client.sub("sub-1", "stream-room-messages", new JSONArray().put("GENERAL")));
+
+    CountDownLatch reconnected = new CountDownLatch(1);
+    Subscription subscription = client.getOnReconnectCallback()
+        .subscribe(connect -> reconnected.countDown());
+    long droppedAt = System.nanoTime();
+    server.dropConnections();
+    assertTrue("not reconnected", reconnected.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    // the replayed "sub" is answered in the round trip after "connected".
+    await(client.rpc("noop", new JSONArray(), "rpc-1", TIMEOUT_MS));
+    long reconnectMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - droppedAt);
+    subscription.unsubscribe();
+
+    List<JSONObject> connects = server.getReceived("connect");
+    assertEquals(2, connects.size());
+    assertEquals(session, connects.get(1).optString("session"));
+    List<JSONObject> subs = server.getReceived("sub");
+    assertEquals(2, subs.size());
+    assertEquals("sub-1", subs.get(1).getString("id"));
+    assertTrue("reconnected in " + reconnectMs + " ms", reconnectMs < RECONNECT_MS);
+  }
+
+  @Test
+  public void survivesRepeatedDrops() throws Exception {
+    await(client.connect(server.getUrl()));
+    await(client.sub("sub-1", "activeUsers", new JSONArray()));
+
+    for (int i = 0; i < 3; i++) {
+      // drop only while connected, since a drop while reconnecting hits no connection.
+      CountDownLatch reconnected = new CountDownLatch(1);
+      Subscription subscription = client.getOnReconnectCallback()
+          .subscribe(connect -> reconnected.countDown());
+      server.dropConnections();
+      assertTrue("not reconnected", reconnected.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+      subscription.unsubscribe();
+      // the replayed "sub" is on the server once the round trip after it is.
+      await(client.rpc("noop", new JSONArray(), "rpc-" + i, TIMEOUT_MS));
+    }
+
+    assertEquals(4, server.getReceived("connect").size());
+    assertEquals(4, server.getReceived("sub").size());
+  }
+
+  @Test
+  public void replaysAfterReconnectHook() throws Exception {
+    await(client.connect(server.getUrl()));
+    await(client.sub("sub-1", "stream-notify-user", new JSONArray()));
+    client.setReconnectHook(connect -> client.rpc("login", new JSONArray(), "login-1", TIMEOUT_MS));
+
+    CountDownLatch reconnected = new CountDownLatch(1);
+    Subscription subscription = client.getOnReconnectCallback()
+        .subscribe(connect -> reconnected.countDown());
+    server.dropConnections();
+    long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+    while (!client.isReconnecting() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    // made while reconnecting, so held until the hook is done.
+    Task<DDPClientCallback.RPC> held = client.rpc("noop", new JSONArray(), "rpc-1", TIMEOUT_MS);
+    assertTrue("not reconnected", reconnected.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    await(held);
+    subscription.unsubscribe();
+
+    List<JSONObject> frames = server.getReceived();
+    int connect = lastIndexOf(frames, "connect", null);
+    int login = lastIndexOf(frames, "method", "login-1");
+    int sub = lastIndexOf(frames, "sub", "sub-1");
+    int method = lastIndexOf(frames, "method", "rpc-1");
+    assertTrue("login is not sent first", connect < login && login < sub && sub < method);
+  }
+
+  private static int lastIndexOf(List<JSONObject> frames, String msg, String id) {
+    for (int i = frames.size() - 1; i >= 0; i--) {
+      JSONObject frame = frames.get(i);
+      if (msg.equals(frame.optString("msg")) && (id == null || id.equals(frame.optString("id")))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
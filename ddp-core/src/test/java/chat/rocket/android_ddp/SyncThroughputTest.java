@@ -0,0 +1,142 @@
+package chat.rocket.android_ddp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import bolts.Task;
+import okhttp3.OkHttpClient;
+import rx.Subscription;
+
+/**
+ * Sync throughput of DDPClient against the scripted FakeDDPServer.
+ */
+public class SyncThroughputTest {
+  private static final long TIMEOUT_MS = 60000;
+  // generous bounds, to catch a regression by a multiple and not to flake on a busy CI.
+  // the timings themselves are measured by the jmh benchmarks.
+  private static final long ACTIVE_USERS_SYNC_MS = 5000;
+  private static final long ROOM_MESSAGE_STREAM_SYNC_MS = 20000;
+
+  private FakeDDPServer server;
+  private DDPClient client;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new FakeDDPServer();
+    server.start();
+    client = new DDPClient(new OkHttpClient());
+    client.setHeartbeatPolicy(HeartbeatPolicy.NONE);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.close();
+    server.shutdown();
+  }
+
+  private static <T> T await(Task<T> task) throws Exception {
+    assertTrue("timed out", task.waitForCompletion(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    if (task.isFaulted()) {
+      throw task.getError();
+    }
+    return task.getResult();
+  }
+
+  // subscribes name and returns the time until count events of collection are delivered.
+  private long syncMillis(String collection, int count, String name, JSONArray params)
+      throws Exception {
+    CountDownLatch delivered = new CountDownLatch(count);
+    Subscription subscription = client.getDocEventCallback(collection)
+        .subscribe(event -> delivered.countDown());
+    long startedAt = System.nanoTime();
+    await(client.sub("sub-" + name, name, params));
+    assertTrue("not delivered", delivered.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+    subscription.unsubscribe();
+    return elapsedMs;
+  }
+
+  @Test
+  public void syncsActiveUsers() throws Exception {
+    server.publish("activeUsers", FakeDDPScenarios.activeUsers(2000));
+    await(client.connect(server.getUrl()));
+    long elapsedMs = syncMillis("users", 2000, "activeUsers", new JSONArray());
+    assertTrue("synced in " + elapsedMs + " ms", elapsedMs < ACTIVE_USERS_SYNC_MS);
+  }
+
+  @Test
+  public void syncsRoomMessageStream() throws Exception {
+    server.publish("stream-room-messages", FakeDDPScenarios.roomMessageStream(50000));
+    await(client.connect(server.getUrl()));
+    long elapsedMs = syncMillis("stream-room-messages", 50000, "stream-room-messages",
+        new JSONArray().put("GENERAL").put(false));
+    assertTrue("synced in " + elapsedMs + " ms", elapsedMs < ROOM_MESSAGE_STREAM_SYNC_MS);
+  }
+
+  @Test
+  public void loadsHistoryPage() throws Exception {
+    server.handleMethod("loadHistory", FakeDDPScenarios.roomHistory(50000));
+    await(client.connect(server.getUrl()));
+    DDPClientCallback.RPC rpc = await(client.rpc("loadHistory",
+        new JSONArray().put("GENERAL").put(JSONObject.NULL).put(50).put(JSONObject.NULL),
+        "rpc-1", TIMEOUT_MS));
+    JSONArray messages = new JSONObject(rpc.result).getJSONArray("messages");
+    assertEquals(50, messages.length());
+    assertEquals("GENERAL-message-49999", messages.getJSONObject(0).getString("_id"));
+  }
+
+  @Test
+  public void waitsForInjectedLatency() throws Exception {
+    await(client.connect(server.getUrl()));
+    server.setLatency(200);
+    long startedAt = System.nanoTime();
+    await(client.rpc("noop", new JSONArray(), "rpc-1", TIMEOUT_MS));
+    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+    assertTrue("answered in " + elapsedMs + " ms", elapsedMs >= 200);
+  }
+
+  @Test
+  public void slowConsumersDoNotStallOtherClients() throws Exception {
+    server.publish("activeUsers", FakeDDPScenarios.activeUsers(100));
+    CountDownLatch release = new CountDownLatch(1);
+    // more stuck clients than dispatcher threads.
+    DDPClient[] stuckClients = new DDPClient[3];
+    try {
+      for (int i = 0; i < stuckClients.length; i++) {
+        CountDownLatch stuck = new CountDownLatch(1);
+        stuckClients[i] = new DDPClient(new OkHttpClient());
+        stuckClients[i].setHeartbeatPolicy(HeartbeatPolicy.NONE);
+        stuckClients[i].getDocEventCallback("users").subscribe(event -> {
+          stuck.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+        await(stuckClients[i].connect(server.getUrl()));
+        stuckClients[i].sub("sub-stuck", "activeUsers", new JSONArray());
+        assertTrue("not stuck", stuck.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+      }
+
+      await(client.connect(server.getUrl()));
+      long elapsedMs = syncMillis("users", 100, "activeUsers", new JSONArray());
+      assertTrue("synced in " + elapsedMs + " ms", elapsedMs < ACTIVE_USERS_SYNC_MS);
+    } finally {
+      release.countDown();
+      for (DDPClient stuckClient : stuckClients) {
+        if (stuckClient != null) {
+          stuckClient.close();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,231 @@
+package chat.rocket.android.realm_helper;
+
+import io.realm.Realm;
+import io.realm.RealmObject;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import bolts.Task;
+import bolts.TaskCompletionSource;
+
+/**
+ * Collects the writes for up to windowMs (or maxBatchSize writes), and applies them
+ * in one transaction in the sync lane of RealmWriter, so a flood of documents causes
+ * one commit and one change notification instead of thousands.
+ * Upserts of the same document in a batch are folded into one, with the later fields winning.
+ */
+public class RealmBatchWriter {
+  // only for the timing of the flushes. the batches are written by RealmWriter.
+  private static final ScheduledExecutorService FLUSH_EXECUTOR =
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "RealmBatchWriter");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private final RealmHelper realmHelper;
+  private final long windowMs;
+  private final int maxBatchSize;
+  private ArrayList<Mutation> pending = new ArrayList<>();
+  // the latest pending upsert of each document, which later upserts are folded into.
+  private final HashMap<String, Upsert> pendingUpserts = new HashMap<>();
+  private TaskCompletionSource<Void> batchTask;
+  private boolean flushScheduled;
+
+  /*package*/ RealmBatchWriter(RealmHelper realmHelper, long windowMs, int maxBatchSize) {
+    this.realmHelper = realmHelper;
+    this.windowMs = windowMs;
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  private static String keyOf(Class<? extends RealmObject> modelClass, String id) {
+    return modelClass.getName() + ":" + id;
+  }
+
+  /**
+   * create or update the object with the fields in json, like
+   * Realm#createOrUpdateObjectFromJson().
+   *
+   * @return the task completed when the batch containing this write is committed.
+   */
+  public Task<Void> upsert(Class<? extends RealmObject> modelClass,
+                           String primaryKey, JSONObject json) throws JSONException {
+    return upsert(modelClass, null, primaryKey, json);
+  }
+
+  /**
+   * create or update the object with the fields in json, with the typed codec.
+   *
+   * @return the task completed when the batch containing this write is committed.
+   */
+  public Task<Void> upsert(RealmJsonCodec<?> codec, JSONObject json) throws JSONException {
+    return upsert(codec.getModelClass(), codec, codec.getPrimaryKey(), json);
+  }
+
+  private synchronized Task<Void> upsert(Class<? extends RealmObject> modelClass,
+                                         RealmJsonCodec<?> codec, String primaryKey,
+                                         JSONObject json) throws JSONException {
+    String key = keyOf(modelClass, json.getString(primaryKey));
+    Upsert upsert = pendingUpserts.get(key);
+    if (upsert != null) {
+      upsert.merge(json);
+      return batchTask.getTask();
+    }
+
+    upsert = new Upsert(modelClass, codec, json);
+    pendingUpserts.put(key, upsert);
+    return enqueue(upsert);
+  }
+
+  /**
+   * delete the object whose primaryKey equals to id.
+   */
+  public synchronized Task<Void> delete(Class<? extends RealmObject> modelClass,
+                                        String primaryKey, String id) {
+    Upsert upsert = pendingUpserts.remove(keyOf(modelClass, id));
+    if (upsert != null) {
+      // deleted anyway.
+      upsert.cancelled = true;
+    }
+    return enqueue(new Delete(modelClass, primaryKey, id));
+  }
+
+  /**
+   * execute the transaction in the batch, in order with the other writes.
+   */
+  public synchronized Task<Void> execute(RealmHelper.Transaction transaction) {
+    // the transaction might read the documents, so don't fold the later upserts over it.
+    pendingUpserts.clear();
+    return enqueue(realm -> transaction.execute(realm));
+  }
+
+  private Task<Void> enqueue(Mutation mutation) {
+    if (batchTask == null) {
+      batchTask = new TaskCompletionSource<>();
+    }
+    Task<Void> task = batchTask.getTask();
+    pending.add(mutation);
+    if (pending.size() >= maxBatchSize) {
+      FLUSH_EXECUTOR.execute(this::flush);
+    } else if (!flushScheduled) {
+      flushScheduled = true;
+      FLUSH_EXECUTOR.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+    }
+    return task;
+  }
+
+  private void flush() {
+    final ArrayList<Mutation> batch;
+    final TaskCompletionSource<Void> task;
+    synchronized (this) {
+      flushScheduled = false;
+      if (pending.isEmpty()) {
+        return;
+      }
+      batch = pending;
+      task = batchTask;
+      pending = new ArrayList<>();
+      pendingUpserts.clear();
+      batchTask = null;
+    }
+
+    final Exception[] firstError = new Exception[1];
+    realmHelper.executeTransaction(realm -> {
+      for (Mutation mutation : batch) {
+        try {
+          mutation.apply(realm);
+        } catch (Exception exception) {
+          // don't roll back the other writes of the batch.
+          if (firstError[0] == null) {
+            firstError[0] = exception;
+          }
+        }
+      }
+      return null;
+    }, RealmWriter.PRIORITY_SYNC).continueWith(_task -> {
+      if (_task.isFaulted()) {
+        task.setError(_task.getError());
+      } else if (firstError[0] != null) {
+        task.setError(firstError[0]);
+      } else {
+        task.setResult(null);
+      }
+      return null;
+    });
+  }
+
+  private interface Mutation {
+    void apply(Realm realm) throws JSONException;
+  }
+
+  private static class Upsert implements Mutation {
+    private final Class<? extends RealmObject> modelClass;
+    private final RealmJsonCodec<?> codec;
+    private JSONObject json;
+    private boolean copied;
+    private boolean cancelled;
+
+    Upsert(Class<? extends RealmObject> modelClass, RealmJsonCodec<?> codec, JSONObject json) {
+      this.modelClass = modelClass;
+      this.codec = codec;
+      this.json = json;
+    }
+
+    void merge(JSONObject newer) throws JSONException {
+      if (!copied) {
+        // don't modify the object given by the caller.
+        json = new JSONObject(json, names(json));
+        copied = true;
+      }
+      Iterator<String> iterator = newer.keys();
+      while (iterator.hasNext()) {
+        String key = iterator.next();
+        json.put(key, newer.get(key));
+      }
+    }
+
+    private static String[] names(JSONObject json) {
+      String[] names = new String[json.length()];
+      Iterator<String> iterator = json.keys();
+      for (int i = 0; iterator.hasNext(); i++) {
+        names[i] = iterator.next();
+      }
+      return names;
+    }
+
+    @Override
+    public void apply(Realm realm) throws JSONException {
+      if (cancelled) {
+        return;
+      }
+      if (codec != null) {
+        codec.upsert(realm, json);
+      } else {
+        realm.createOrUpdateObjectFromJson(modelClass, json);
+      }
+    }
+  }
+
+  private static class Delete implements Mutation {
+    private final Class<? extends RealmObject> modelClass;
+    private final String primaryKey;
+    private final String id;
+
+    Delete(Class<? extends RealmObject> modelClass, String primaryKey, String id) {
+      this.modelClass = modelClass;
+      this.primaryKey = primaryKey;
+      this.id = id;
+    }
+
+    @Override
+    public void apply(Realm realm) {
+      realm.where(modelClass).equalTo(primaryKey, id).findAll().deleteAllFromRealm();
+    }
+  }
+}
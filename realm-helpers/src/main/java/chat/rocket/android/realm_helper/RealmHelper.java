@@ -2,7 +2,6 @@ package chat.rocket.android.realm_helper;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
-import android.os.Looper;
 import android.support.v7.widget.RecyclerView;
 import io.realm.Realm;
 import io.realm.RealmConfiguration;
@@ -29,8 +28,14 @@ public class RealmHelper {
   }
 
   /*package*/ Realm instance() {
-    return realmConfiguration == null
-        ? Realm.getDefaultInstance() : Realm.getInstance(realmConfiguration);
+    RealmConfiguration configuration = configuration();
+    // cheap while the pinned instance of this thread is open.
+    RealmInstancePool.pin(configuration);
+    return Realm.getInstance(configuration);
+  }
+
+  private RealmConfiguration configuration() {
+    return realmConfiguration == null ? Realm.getDefaultConfiguration() : realmConfiguration;
   }
 
   public <E extends RealmObject> List<E> copyFromRealm(Iterable<E> objects) {
@@ -73,24 +78,50 @@ public class RealmHelper {
     }
   }
 
-  private boolean shouldUseSync() {
-    // ref: realm-java:realm/realm-library/src/main/java/io/realm/AndroidNotifier.java
-    // #isAutoRefreshAvailable()
-
-    if (Looper.myLooper() == null) {
-      return true;
+  /**
+   * run the projection in an open Realm, and returns the values it extracts
+   * (e.g. a field of an object), without copying the objects from Realm.
+   * the projection must not return managed objects, which are invalid after this.
+   *
+   * @return null if the projection fails.
+   */
+  public <R> R executeProjection(Projection<R> projection) {
+    try (Realm realm = instance()) {
+      return projection.extract(realm);
+    } catch (Exception exception) {
+      RCLog.w(exception);
+      return null;
     }
-
-    String threadName = Thread.currentThread().getName();
-    return threadName != null && threadName.startsWith("IntentService[");
   }
 
+  /**
+   * execute the transaction on the writer thread of the Realm file, in the interactive lane.
+   */
   public Task<Void> executeTransaction(final RealmHelper.Transaction transaction) {
-    return shouldUseSync() ? executeTransactionSync(transaction)
-        : executeTransactionAsync(transaction);
+    return executeTransaction(transaction, RealmWriter.PRIORITY_INTERACTIVE);
+  }
+
+  /**
+   * execute the transaction on the writer thread of the Realm file, in the lane of priority.
+   * (RealmWriter.PRIORITY_INTERACTIVE, PRIORITY_SYNC or PRIORITY_HOUSEKEEPING)
+   */
+  public Task<Void> executeTransaction(final RealmHelper.Transaction transaction, int priority) {
+    return RealmWriter.get(configuration()).submit(transaction, priority);
+  }
+
+  /**
+   * returns the writer thread of the Realm file. (e.g. for its queue depth)
+   */
+  public RealmWriter getWriter() {
+    return RealmWriter.get(configuration());
   }
 
-  private Task<Void> executeTransactionSync(final RealmHelper.Transaction transaction) {
+  /**
+   * execute the transaction on the calling thread, bypassing the lanes of the writer thread.
+   * only for the callers which must finish the write before returning.
+   * (e.g. IntentService, whose process may be killed right after)
+   */
+  public Task<Void> executeTransactionBlocking(final RealmHelper.Transaction transaction) {
     final TaskCompletionSource<Void> task = new TaskCompletionSource<>();
 
     try (Realm realm = instance()) {
@@ -109,29 +140,12 @@ public class RealmHelper {
     return task.getTask();
   }
 
-  private Task<Void> executeTransactionAsync(final RealmHelper.Transaction transaction) {
-    final TaskCompletionSource<Void> task = new TaskCompletionSource<>();
-
-    final Realm realm = instance();
-    realm.executeTransactionAsync(_realm -> {
-      try {
-        transaction.execute(_realm);
-      } catch (JSONException exception) {
-        throw new RuntimeException(exception);
-      }
-    }, () -> {
-      realm.close();
-      task.setResult(null);
-    }, error -> {
-      realm.close();
-      if (error instanceof Exception) {
-        task.setError((Exception) error);
-      } else {
-        task.setError(new Exception(error));
-      }
-    });
-
-    return task.getTask();
+  /**
+   * create the writer which applies the writes in batches of up to maxBatchSize,
+   * collected for up to windowMs.
+   */
+  public RealmBatchWriter createBatchWriter(long windowMs, int maxBatchSize) {
+    return new RealmBatchWriter(this, windowMs, maxBatchSize);
   }
 
   public <T extends RealmObject> RealmListObserver<T> createListObserver(
@@ -150,6 +164,17 @@ public class RealmHelper {
     return constructor.getNewInstance(context).initializeWith(this, query);
   }
 
+  /**
+   * create the adapter which materializes only the pages of pageSize items around
+   * the visible range, for long results.
+   */
+  public <T extends RealmObject, VM, VH extends RealmModelViewHolder<VM>>
+  RecyclerView.Adapter<VH> createPagedListAdapter(Context context,
+      RealmListObserver.Query<T> query,
+      RealmModelListAdapter.Constructor<T, VM, VH> constructor, int pageSize) {
+    return constructor.getNewInstance(context).initializeWithPaging(this, query, pageSize);
+  }
+
   public <T extends RealmObject> RealmAutoCompleteAdapter<T> createAutoCompleteAdapter(
       Context context,
       RealmAutoCompleteAdapter.RealmFilter<T> filter,
@@ -160,4 +185,8 @@ public class RealmHelper {
   public interface Transaction<T> {
     T execute(Realm realm) throws JSONException;
   }
+
+  public interface Projection<R> {
+    R extract(Realm realm) throws JSONException;
+  }
 }
@@ -0,0 +1,59 @@
+package chat.rocket.android.realm_helper;
+
+import android.os.Looper;
+import io.realm.Realm;
+import io.realm.RealmConfiguration;
+
+import java.util.HashMap;
+
+/**
+ * Keeps one Realm instance open per Looper thread and Realm file while the thread is busy.
+ * Realm reference-counts the instances of a thread, and really opens and closes the file
+ * whenever the count goes between 0 and 1. So the short-lived instances of the read helpers
+ * are cheap while this holds a reference, which is released when the thread goes idle.
+ * Threads without a Looper have no idle signal, so they are not pinned.
+ */
+class RealmInstancePool {
+  private static final ThreadLocal<RealmInstancePool> pools = new ThreadLocal<RealmInstancePool>() {
+    @Override
+    protected RealmInstancePool initialValue() {
+      return new RealmInstancePool();
+    }
+  };
+
+  private final HashMap<String, Realm> pinnedRealms = new HashMap<>();
+  private boolean idleHandlerQueued;
+
+  /**
+   * keep the Realm of the configuration open on the current thread, until it goes idle.
+   */
+  public static void pin(RealmConfiguration configuration) {
+    if (Looper.myLooper() == null) {
+      return;
+    }
+    pools.get().pinRealm(configuration);
+  }
+
+  private void pinRealm(RealmConfiguration configuration) {
+    if (pinnedRealms.containsKey(configuration.getPath())) {
+      return;
+    }
+    pinnedRealms.put(configuration.getPath(), Realm.getInstance(configuration));
+    if (!idleHandlerQueued) {
+      idleHandlerQueued = true;
+      Looper.myQueue().addIdleHandler(this::releaseAll);
+    }
+  }
+
+  /**
+   * @return false, to remove the idle handler.
+   */
+  private boolean releaseAll() {
+    for (Realm realm : pinnedRealms.values()) {
+      realm.close();
+    }
+    pinnedRealms.clear();
+    idleHandlerQueued = false;
+    return false;
+  }
+}
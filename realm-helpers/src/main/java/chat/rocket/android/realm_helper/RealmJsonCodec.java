@@ -0,0 +1,132 @@
+package chat.rocket.android.realm_helper;
+
+import io.realm.Realm;
+import io.realm.RealmObject;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+
+/**
+ * Writes JSON documents straight into the typed setters of a Realm model, instead of
+ * the generic import of Realm#createOrUpdateObjectFromJson().
+ * Only the fields present in the JSON are written, so a partial document (e.g. "changed")
+ * keeps the other fields. JSONObject.NULL clears the field.
+ * EJSON dates ({"$date": millis}) are decoded in place, without a pass over the JSON.
+ */
+public abstract class RealmJsonCodec<T extends RealmObject> {
+  private static final String EJSON_DATE = "$date";
+
+  private final Class<T> modelClass;
+  private final String primaryKey;
+
+  protected RealmJsonCodec(Class<T> modelClass, String primaryKey) {
+    this.modelClass = modelClass;
+    this.primaryKey = primaryKey;
+  }
+
+  public Class<T> getModelClass() {
+    return modelClass;
+  }
+
+  public String getPrimaryKey() {
+    return primaryKey;
+  }
+
+  /**
+   * create or update the object with the fields in json. must be called in a transaction.
+   */
+  public T upsert(Realm realm, JSONObject json) throws JSONException {
+    String id = json.getString(primaryKey);
+    T object = realm.where(modelClass).equalTo(primaryKey, id).findFirst();
+    if (object == null) {
+      object = realm.createObject(modelClass, id);
+    }
+
+    Iterator<String> iterator = json.keys();
+    while (iterator.hasNext()) {
+      String field = iterator.next();
+      if (!primaryKey.equals(field)) {
+        decodeField(realm, object, field, json.get(field));
+      }
+    }
+    onDecoded(realm, object, json);
+    return object;
+  }
+
+  public void upsertAll(Realm realm, JSONArray array) throws JSONException {
+    for (int i = 0; i < array.length(); i++) {
+      upsert(realm, array.getJSONObject(i));
+    }
+  }
+
+  /**
+   * write the value into the field of object. the unknown fields should be ignored.
+   */
+  protected abstract void decodeField(Realm realm, T object, String field, Object value)
+      throws JSONException;
+
+  /**
+   * called after the fields of json are written. (e.g. for the default values)
+   */
+  protected void onDecoded(Realm realm, T object, JSONObject json) throws JSONException {
+  }
+
+  /**
+   * JSONObject and JSONArray are kept as JSON text.
+   */
+  protected static String asString(Object value) {
+    return value == JSONObject.NULL ? null : value.toString();
+  }
+
+  protected static boolean asBoolean(Object value) {
+    if (value instanceof Boolean) {
+      return (Boolean) value;
+    }
+    return value instanceof String && Boolean.parseBoolean((String) value);
+  }
+
+  protected static int asInt(Object value) throws JSONException {
+    return (int) asLong(value);
+  }
+
+  protected static long asLong(Object value) throws JSONException {
+    if (value == JSONObject.NULL) {
+      return 0;
+    }
+    if (value instanceof Number) {
+      return ((Number) value).longValue();
+    }
+    try {
+      return Long.parseLong(value.toString());
+    } catch (NumberFormatException exception) {
+      throw new JSONException("not a number: " + value);
+    }
+  }
+
+  protected static double asDouble(Object value) throws JSONException {
+    if (value == JSONObject.NULL) {
+      return 0;
+    }
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue();
+    }
+    try {
+      return Double.parseDouble(value.toString());
+    } catch (NumberFormatException exception) {
+      throw new JSONException("not a number: " + value);
+    }
+  }
+
+  /**
+   * decodes either an EJSON date or the millis already decoded by EJsonReader.
+   */
+  protected static long asDate(Object value) throws JSONException {
+    if (value instanceof JSONObject) {
+      Object date = ((JSONObject) value).opt(EJSON_DATE);
+      return date != null ? asLong(date) : 0;
+    }
+    return asLong(value);
+  }
+}
@@ -10,6 +10,7 @@ import java.util.List;
 public class RealmListObserver<T extends RealmObject> extends AbstractRealmResultsObserver<T> {
   private final Query<T> query;
   private OnUpdateListener<T> onUpdateListener;
+  private boolean skipUnchangedResults = true;
   private String previousResultsString;
 
   /*package*/ RealmListObserver(RealmHelper helper, Query<T> query) {
@@ -22,6 +23,16 @@ public class RealmListObserver<T extends RealmObject> extends AbstractRealmResul
     return this;
   }
 
+  /**
+   * whether to skip the notifications in which the results are not changed (default: true).
+   * the comparison reads all the results, so disable it if the listener detects changes
+   * by itself.
+   */
+  public RealmListObserver<T> setSkipUnchangedResults(boolean skipUnchangedResults) {
+    this.skipUnchangedResults = skipUnchangedResults;
+    return this;
+  }
+
   @Override
   protected final RealmResults<T> queryItems(Realm realm) {
     return query.queryItems(realm);
@@ -30,11 +41,13 @@ public class RealmListObserver<T extends RealmObject> extends AbstractRealmResul
   @Override
   public final RealmChangeListener<RealmResults<T>> getListener() {
     return results -> {
-      String currentResultString = results != null ? results.toString() : null;
-      if (previousResultsString != null && previousResultsString.equals(currentResultString)) {
-        return;
+      if (skipUnchangedResults) {
+        String currentResultString = results != null ? results.toString() : null;
+        if (previousResultsString != null && previousResultsString.equals(currentResultString)) {
+          return;
+        }
+        previousResultsString = currentResultString;
       }
-      previousResultsString = currentResultString;
       if (onUpdateListener != null) {
         onUpdateListener.onUpdateResults(results);
       }
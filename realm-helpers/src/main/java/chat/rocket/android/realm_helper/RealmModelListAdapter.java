@@ -1,7 +1,12 @@
 package chat.rocket.android.realm_helper;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.LayoutRes;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -9,14 +14,39 @@ import android.view.ViewGroup;
 import io.realm.RealmObject;
 
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 public abstract class RealmModelListAdapter<T extends RealmObject, VM,
     VH extends RealmModelViewHolder<VM>> extends RecyclerView.Adapter<VH> {
+  // the changes of the list are computed on this thread, not on the main thread.
+  private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "RealmModelListAdapter-diff");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private static final int MAX_PAGES = 5;
 
   protected final LayoutInflater inflater;
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
   private RealmListObserver<T> realmListObserver;
+  private RealmPagedList<T, VM> pagedList;
   private List<VM> adapterData;
+  private String[] adapterKeys;
+  private int[] adapterHashes;
+  // the size of the paged list last notified to the RecyclerView.
+  private int pagedItemCount;
+  // incremented on every update, to drop the diffs computed for outdated lists.
+  private int generation;
   private OnItemClickListener<VM> onItemClickListener;
+  // tells the paged list which pages are on screen.
+  private final RecyclerView.OnScrollListener visibleRangeListener =
+      new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+          updateVisibleRange(recyclerView);
+        }
+      };
 
   protected RealmModelListAdapter(Context context) {
     this.inflater = LayoutInflater.from(context);
@@ -24,20 +54,44 @@ public abstract class RealmModelListAdapter<T extends RealmObject, VM,
 
   /*package*/ RealmModelListAdapter<T, VM, VH> initializeWith(final RealmHelper realmHelper,
                                                               RealmListObserver.Query<T> query) {
+    // the unchanged results are detected by the diff, so skip the comparison of the observer.
     realmListObserver = new RealmListObserver<>(realmHelper, query)
+        .setSkipUnchangedResults(false)
         .setOnUpdateListener(results -> updateData(realmHelper.copyFromRealm(results)));
     return this;
   }
 
+  /**
+   * keep the live results, and materialize the view models only for the pages being accessed,
+   * instead of copying all the results on every update.
+   */
+  /*package*/ RealmModelListAdapter<T, VM, VH> initializeWithPaging(
+      final RealmHelper realmHelper, RealmListObserver.Query<T> query, int pageSize) {
+    pagedList = new RealmPagedList<>(realmHelper, pageSize, MAX_PAGES,
+        this::mapResultsToViewModel);
+    realmListObserver = new RealmListObserver<>(realmHelper, query)
+        .setSkipUnchangedResults(false)
+        .setOnUpdateListener(this::updatePagedData);
+    return this;
+  }
+
   @Override
   public void onAttachedToRecyclerView(RecyclerView recyclerView) {
     super.onAttachedToRecyclerView(recyclerView);
+    recyclerView.addOnScrollListener(visibleRangeListener);
     realmListObserver.sub();
   }
 
   @Override
   public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+    recyclerView.removeOnScrollListener(visibleRangeListener);
     realmListObserver.unsub();
+    if (pagedList != null) {
+      // invalidated by closing the Realm.
+      pagedList.setResults(null);
+      pagedItemCount = 0;
+      notifyDataSetChanged();
+    }
     super.onDetachedFromRecyclerView(recyclerView);
   }
 
@@ -49,8 +103,35 @@ public abstract class RealmModelListAdapter<T extends RealmObject, VM,
 
   protected abstract VH onCreateRealmModelViewHolder(int viewType, View itemView);
 
+  /**
+   * map the results copied from Realm to the view models, one for each result.
+   * called on a background thread, or on the main thread for each page if paged.
+   */
   protected abstract List<VM> mapResultsToViewModel(List<T> results);
 
+  /**
+   * returns the primary key of the model, which enables incremental updates of the list.
+   * the whole list is refreshed on every update if null.
+   */
+  protected String getItemKey(VM model) {
+    return null;
+  }
+
+  /**
+   * returns a cheap hash of the displayed content of the model.
+   * the item with the same key is re-bound only when the hash is changed.
+   */
+  protected int getItemHash(VM model) {
+    return model.hashCode();
+  }
+
+  /**
+   * returns the adapter position of the first model. (e.g. 1 with a header)
+   */
+  protected int getPositionOffset() {
+    return 0;
+  }
+
   @Override
   public int getItemViewType(int position) {
     return getRealmModelViewType(getItem(position));
@@ -77,28 +158,204 @@ public abstract class RealmModelListAdapter<T extends RealmObject, VM,
 
   @Override
   public int getItemCount() {
+    if (pagedList != null) {
+      return pagedItemCount;
+    }
     return adapterData != null ? adapterData.size() : 0;
   }
 
   private VM getItem(int position) {
-    return adapterData.get(position);
+    return pagedList != null ? pagedList.get(position) : adapterData.get(position);
   }
 
   private void updateData(List<T> newData) {
-    if (adapterData == null) {
-      adapterData = mapResultsToViewModel(newData);
+    final int currentGeneration = ++generation;
+    final List<VM> oldData = adapterData;
+    final String[] oldKeys = adapterKeys;
+    final int[] oldHashes = adapterHashes;
+
+    DIFF_EXECUTOR.execute(() -> {
+      final List<VM> data = mapResultsToViewModel(newData);
+      final String[] keys = new String[data.size()];
+      final int[] hashes = new int[data.size()];
+      final boolean keyed = computeKeys(data, keys, hashes);
+      final DiffUtil.DiffResult diffResult = oldData == null || oldKeys == null || !keyed
+          ? null : DiffUtil.calculateDiff(new DiffCallback(oldKeys, oldHashes, keys, hashes));
+      final boolean incremental = diffResult != null;
+      mainHandler.post(() -> {
+        if (currentGeneration != generation) {
+          // computed for an outdated list.
+          return;
+        }
+        adapterData = data;
+        adapterKeys = keyed ? keys : null;
+        adapterHashes = hashes;
+        if (incremental) {
+          diffResult.dispatchUpdatesTo(new OffsetListUpdateCallback(getPositionOffset()));
+        } else {
+          notifyDataSetChanged();
+        }
+      });
+    });
+  }
+
+  private void updateVisibleRange(RecyclerView recyclerView) {
+    if (pagedList == null || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+      return;
+    }
+    LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+    int first = layoutManager.findFirstVisibleItemPosition();
+    int last = layoutManager.findLastVisibleItemPosition();
+    if (first == RecyclerView.NO_POSITION) {
+      return;
+    }
+    int offset = getPositionOffset();
+    pagedList.setVisibleRange(Math.max(0, first - offset), Math.max(0, last - offset));
+  }
+
+  /**
+   * diffs the materialized window of the paged list, keeping the rest of the results lazy.
+   * the window is at most MAX_PAGES pages, so it is diffed on the main thread where
+   * the live results are.
+   * the results are the same live instance on every update, so the old size is the notified one.
+   */
+  private void updatePagedData(List<T> results) {
+    final int oldSize = pagedItemCount;
+    final int windowStart = pagedList.getWindowStart();
+    final List<VM> oldWindow = pagedList.getWindow();
+    pagedList.setResults(results);
+    final int newSize = pagedList.size();
+    pagedItemCount = newSize;
+
+    // the rows beyond the window are not materialized, so the window has to absorb
+    // the whole change in size.
+    final int newWindowSize = oldWindow.size() + newSize - oldSize;
+    if (windowStart < 0 || oldWindow.isEmpty() || newWindowSize < 0
+        || newWindowSize > MAX_PAGES * pagedList.getPageSize()) {
       notifyDataSetChanged();
-    } else {
-      // TODO: use DillUtils!
-      adapterData = mapResultsToViewModel(newData);
+      return;
+    }
+
+    final String[] oldKeys = new String[oldWindow.size()];
+    final int[] oldHashes = new int[oldWindow.size()];
+    if (!computeKeys(oldWindow, oldKeys, oldHashes)
+        || !isChangeInWindow(windowStart, oldKeys, oldSize, newWindowSize)) {
+      notifyDataSetChanged();
+      return;
+    }
+    final List<VM> newWindow = pagedList.getRange(windowStart, windowStart + newWindowSize);
+    final String[] newKeys = new String[newWindow.size()];
+    final int[] newHashes = new int[newWindow.size()];
+    if (!computeKeys(newWindow, newKeys, newHashes)) {
       notifyDataSetChanged();
+      return;
     }
+
+    DiffUtil.calculateDiff(new DiffCallback(oldKeys, oldHashes, newKeys, newHashes))
+        .dispatchUpdatesTo(new OffsetListUpdateCallback(getPositionOffset() + windowStart));
+  }
+
+  /**
+   * returns true if the rows around the window are kept in place, which is checked
+   * by the first and the last rows of the window. false also for a change at the edges.
+   */
+  private boolean isChangeInWindow(int windowStart, String[] oldKeys, int oldSize,
+                                    int newWindowSize) {
+    if (windowStart > 0 && (newWindowSize == 0
+        || !oldKeys[0].equals(getItemKey(pagedList.get(windowStart))))) {
+      return false;
+    }
+    if (windowStart + oldKeys.length < oldSize && (newWindowSize == 0
+        || !oldKeys[oldKeys.length - 1].equals(
+            getItemKey(pagedList.get(windowStart + newWindowSize - 1))))) {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * @return false if any model has no key.
+   */
+  private boolean computeKeys(List<VM> models, String[] keys, int[] hashes) {
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = getItemKey(models.get(i));
+      if (keys[i] == null) {
+        return false;
+      }
+      hashes[i] = getItemHash(models.get(i));
+    }
+    return true;
   }
 
   public void setOnItemClickListener(OnItemClickListener<VM> onItemClickListener) {
     this.onItemClickListener = onItemClickListener;
   }
 
+  private static class DiffCallback extends DiffUtil.Callback {
+    private final String[] oldKeys;
+    private final int[] oldHashes;
+    private final String[] newKeys;
+    private final int[] newHashes;
+
+    DiffCallback(String[] oldKeys, int[] oldHashes, String[] newKeys, int[] newHashes) {
+      this.oldKeys = oldKeys;
+      this.oldHashes = oldHashes;
+      this.newKeys = newKeys;
+      this.newHashes = newHashes;
+    }
+
+    @Override
+    public int getOldListSize() {
+      return oldKeys.length;
+    }
+
+    @Override
+    public int getNewListSize() {
+      return newKeys.length;
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+      return oldKeys[oldItemPosition].equals(newKeys[newItemPosition]);
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+      return oldHashes[oldItemPosition] == newHashes[newItemPosition];
+    }
+  }
+
+  /**
+   * shifts the positions of the changes by the offset of the first model.
+   */
+  private class OffsetListUpdateCallback implements ListUpdateCallback {
+    private final int offset;
+
+    OffsetListUpdateCallback(int offset) {
+      this.offset = offset;
+    }
+
+    @Override
+    public void onInserted(int position, int count) {
+      notifyItemRangeInserted(position + offset, count);
+    }
+
+    @Override
+    public void onRemoved(int position, int count) {
+      notifyItemRangeRemoved(position + offset, count);
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+      notifyItemMoved(fromPosition + offset, toPosition + offset);
+    }
+
+    @Override
+    public void onChanged(int position, int count, Object payload) {
+      notifyItemRangeChanged(position + offset, count, payload);
+    }
+  }
+
   public interface Constructor<T extends RealmObject, VM, VH extends RealmModelViewHolder<VM>> {
     RealmModelListAdapter<T, VM, VH> getNewInstance(Context context);
   }
@@ -0,0 +1,160 @@
+package chat.rocket.android.realm_helper;
+
+import io.realm.RealmObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * View models over live RealmResults, materialized page by page on access.
+ * Only the pages around the visible range are kept, so the memory stays flat however long
+ * the results are.
+ */
+class RealmPagedList<T extends RealmObject, VM> {
+  private final RealmHelper realmHelper;
+  private final int pageSize;
+  private final int maxPages;
+  private final Mapper<T, VM> mapper;
+  private final HashMap<Integer, List<VM>> pages = new HashMap<>();
+  private List<T> results;
+  // -1 while unknown.
+  private int firstVisiblePosition = -1;
+  private int lastVisiblePosition = -1;
+
+  RealmPagedList(RealmHelper realmHelper, int pageSize, int maxPages, Mapper<T, VM> mapper) {
+    this.realmHelper = realmHelper;
+    this.pageSize = pageSize;
+    this.maxPages = maxPages;
+    this.mapper = mapper;
+  }
+
+  /**
+   * set the live results. the materialized pages are discarded.
+   */
+  public void setResults(List<T> results) {
+    this.results = results;
+    pages.clear();
+  }
+
+  /**
+   * set the range on screen, whose pages are the last to be dropped.
+   */
+  public void setVisibleRange(int firstPosition, int lastPosition) {
+    firstVisiblePosition = firstPosition;
+    lastVisiblePosition = lastPosition;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  public int size() {
+    return results != null ? results.size() : 0;
+  }
+
+  public VM get(int position) {
+    int pageIndex = position / pageSize;
+    List<VM> page = pages.get(pageIndex);
+    if (page == null) {
+      page = load(pageIndex);
+      pages.put(pageIndex, page);
+      trim(pageIndex);
+    }
+    return page.get(position - pageIndex * pageSize);
+  }
+
+  /**
+   * returns the models in [start, end), materializing the pages as needed.
+   */
+  public List<VM> getRange(int start, int end) {
+    ArrayList<VM> models = new ArrayList<>(Math.max(0, end - start));
+    for (int i = start; i < end; i++) {
+      models.add(get(i));
+    }
+    return models;
+  }
+
+  /**
+   * returns the position of the first model of the materialized window, which is the run of
+   * the materialized pages around the visible range. -1 if nothing is materialized.
+   */
+  public int getWindowStart() {
+    int anchor = getWindowAnchorPage();
+    if (anchor < 0) {
+      return -1;
+    }
+    int first = anchor;
+    while (pages.containsKey(first - 1)) {
+      first--;
+    }
+    return first * pageSize;
+  }
+
+  /**
+   * returns the models of the materialized window, without materializing any page.
+   */
+  public List<VM> getWindow() {
+    ArrayList<VM> models = new ArrayList<>();
+    int start = getWindowStart();
+    if (start < 0) {
+      return models;
+    }
+    for (int pageIndex = start / pageSize; pages.containsKey(pageIndex); pageIndex++) {
+      models.addAll(pages.get(pageIndex));
+    }
+    return models;
+  }
+
+  private int getWindowAnchorPage() {
+    if (firstVisiblePosition >= 0 && pages.containsKey(firstVisiblePosition / pageSize)) {
+      return firstVisiblePosition / pageSize;
+    }
+    int anchor = -1;
+    for (int pageIndex : pages.keySet()) {
+      if (anchor < 0 || pageIndex < anchor) {
+        anchor = pageIndex;
+      }
+    }
+    return anchor;
+  }
+
+  // drops the pages farthest from the visible range, so a fast fling doesn't drop
+  // the pages on screen.
+  private void trim(int accessedPage) {
+    while (pages.size() > maxPages) {
+      int farthestPage = -1;
+      int farthestDistance = -1;
+      for (int pageIndex : pages.keySet()) {
+        int distance = getDistanceFromVisibleRange(pageIndex, accessedPage);
+        if (pageIndex != accessedPage && distance > farthestDistance) {
+          farthestPage = pageIndex;
+          farthestDistance = distance;
+        }
+      }
+      pages.remove(farthestPage);
+    }
+  }
+
+  private int getDistanceFromVisibleRange(int pageIndex, int accessedPage) {
+    int firstPage = firstVisiblePosition >= 0 ? firstVisiblePosition / pageSize : accessedPage;
+    int lastPage = lastVisiblePosition >= 0 ? lastVisiblePosition / pageSize : accessedPage;
+    if (pageIndex < firstPage) {
+      return firstPage - pageIndex;
+    }
+    return pageIndex > lastPage ? pageIndex - lastPage : 0;
+  }
+
+  private List<VM> load(int pageIndex) {
+    int start = pageIndex * pageSize;
+    int pageLength = Math.min(pageSize, results.size() - start);
+    // with one more row, for the view models depending on the next row. (e.g. grouping)
+    int end = Math.min(start + pageSize + 1, results.size());
+    List<VM> models = mapper.map(realmHelper.copyFromRealm(results.subList(start, end)));
+    return models.size() > pageLength ? models.subList(0, pageLength) : models;
+  }
+
+  interface Mapper<T extends RealmObject, VM> {
+    List<VM> map(List<T> results);
+  }
+}
@@ -2,10 +2,14 @@ package chat.rocket.android.realm_helper;
 
 import io.realm.RealmConfiguration;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class RealmStore {
-  public static HashMap<String, RealmConfiguration> sStore = new HashMap<>();
+  public static final ConcurrentHashMap<String, RealmConfiguration> sStore =
+      new ConcurrentHashMap<>();
+  // RealmHelper is stateless, so one helper per Realm is shared.
+  private static final ConcurrentHashMap<String, RealmHelper> helpers = new ConcurrentHashMap<>();
+  private static final RealmHelper defaultHelper = new RealmHelper();
 
   private static RealmConfiguration createConfigFor(String name) {
     return new RealmConfiguration.Builder()
@@ -15,24 +19,43 @@ public class RealmStore {
 
   public static void put(String name) {
     sStore.put(name, createConfigFor(name));
+    helpers.remove(name);
   }
 
   public static RealmHelper getDefault() {
-    return new RealmHelper();
+    return defaultHelper;
   }
 
   public static RealmHelper get(String name) {
-    if (!sStore.containsKey(name)) {
+    RealmConfiguration config = sStore.get(name);
+    if (config == null) {
       return null;
     }
 
-    return new RealmHelper(sStore.get(name));
+    return helperFor(name, config);
   }
 
   public static RealmHelper getOrCreate(String name) {
-    if (!sStore.containsKey(name)) {
-      put(name);
+    RealmConfiguration config = sStore.get(name);
+    if (config == null) {
+      RealmConfiguration newConfig = createConfigFor(name);
+      config = sStore.putIfAbsent(name, newConfig);
+      if (config == null) {
+        config = newConfig;
+      }
     }
-    return new RealmHelper(sStore.get(name));
+    return helperFor(name, config);
+  }
+
+  private static RealmHelper helperFor(String name, RealmConfiguration config) {
+    RealmHelper helper = helpers.get(name);
+    if (helper == null) {
+      helper = new RealmHelper(config);
+      RealmHelper existing = helpers.putIfAbsent(name, helper);
+      if (existing != null) {
+        helper = existing;
+      }
+    }
+    return helper;
   }
 }
@@ -0,0 +1,220 @@
+package chat.rocket.android.realm_helper;
+
+import android.os.Handler;
+import android.os.Looper;
+import io.realm.Realm;
+import io.realm.RealmConfiguration;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+import bolts.Task;
+import bolts.TaskCompletionSource;
+import chat.rocket.android.log.RCLog;
+
+/**
+ * Writer thread of a Realm file, with priority lanes.
+ * Realm allows only one write transaction on a file at a time, so the transactions are
+ * executed one by one on this thread, taking the queued ones of the higher priority first.
+ * So an interactive write (e.g. sending a message) waits at most for the transaction
+ * being executed, not for all the queued bulk writes.
+ */
+public class RealmWriter {
+  public static final int PRIORITY_INTERACTIVE = 0;
+  public static final int PRIORITY_SYNC = 1;
+  public static final int PRIORITY_HOUSEKEEPING = 2;
+  private static final int LANE_COUNT = 3;
+
+  private static final HashMap<String, RealmWriter> writers = new HashMap<>();
+
+  private final RealmConfiguration configuration;
+  private final ArrayDeque<Job>[] lanes;
+  private Thread writerThread;
+
+  @SuppressWarnings("unchecked")
+  private RealmWriter(RealmConfiguration configuration) {
+    this.configuration = configuration;
+    lanes = new ArrayDeque[LANE_COUNT];
+    for (int i = 0; i < LANE_COUNT; i++) {
+      lanes[i] = new ArrayDeque<>();
+    }
+  }
+
+  /**
+   * returns the writer of the Realm file.
+   */
+  public static RealmWriter get(RealmConfiguration configuration) {
+    synchronized (writers) {
+      RealmWriter writer = writers.get(configuration.getPath());
+      if (writer == null) {
+        writer = new RealmWriter(configuration);
+        writers.put(configuration.getPath(), writer);
+      }
+      return writer;
+    }
+  }
+
+  /**
+   * queue the transaction in the lane of priority.
+   *
+   * @return the task completed when the transaction is committed, on the Looper of the caller
+   *     if any, otherwise on a background thread.
+   */
+  public synchronized Task<Void> submit(RealmHelper.Transaction transaction, int priority) {
+    if (priority < 0 || priority >= LANE_COUNT) {
+      throw new IllegalArgumentException("unknown priority: " + priority);
+    }
+    Job job = new Job(transaction, Looper.myLooper());
+    lanes[priority].addLast(job);
+    if (writerThread == null) {
+      startWriter();
+    } else {
+      notifyAll();
+    }
+    return job.task.getTask();
+  }
+
+  private void startWriter() {
+    writerThread = new Thread(this::runWriter, "RealmWriter-" + configuration.getRealmFileName());
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  /**
+   * returns the number of the transactions waiting in the lane of priority.
+   */
+  public synchronized int getQueueDepth(int priority) {
+    return lanes[priority].size();
+  }
+
+  /**
+   * returns the number of the transactions waiting in all the lanes.
+   */
+  public synchronized int getQueueDepth() {
+    int depth = 0;
+    for (ArrayDeque<Job> lane : lanes) {
+      depth += lane.size();
+    }
+    return depth;
+  }
+
+  private synchronized Job poll() {
+    for (ArrayDeque<Job> lane : lanes) {
+      if (!lane.isEmpty()) {
+        return lane.pollFirst();
+      }
+    }
+    return null;
+  }
+
+  private void runWriter() {
+    Realm realm = null;
+    try {
+      while (true) {
+        Job job = poll();
+        if (job == null) {
+          if (realm != null) {
+            // don't keep the file open while idle.
+            realm.close();
+            realm = null;
+          }
+          synchronized (this) {
+            while (getQueueDepth() == 0) {
+              try {
+                wait();
+              } catch (InterruptedException exception) {
+                // just check the lanes again.
+              }
+            }
+          }
+          continue;
+        }
+
+        try {
+          if (realm == null) {
+            realm = Realm.getInstance(configuration);
+          }
+          realm.beginTransaction();
+        } catch (Throwable throwable) {
+          // the file can't be written, so let the next submit() retry with a new thread.
+          job.complete(throwable);
+          throw throwable;
+        }
+
+        try {
+          job.transaction.execute(realm);
+          realm.commitTransaction();
+          job.complete(null);
+        } catch (Exception exception) {
+          try {
+            realm.cancelTransaction();
+          } finally {
+            job.complete(exception);
+          }
+        } catch (Throwable throwable) {
+          job.complete(throwable);
+          throw throwable;
+        }
+      }
+    } catch (Throwable throwable) {
+      RCLog.e(throwable, "RealmWriter stopped");
+    } finally {
+      closeQuietly(realm);
+      synchronized (this) {
+        writerThread = null;
+        if (getQueueDepth() > 0) {
+          // don't leave the queued transactions waiting for the next submit().
+          startWriter();
+        }
+      }
+    }
+  }
+
+  private static void closeQuietly(Realm realm) {
+    if (realm == null || realm.isClosed()) {
+      return;
+    }
+    try {
+      if (realm.isInTransaction()) {
+        realm.cancelTransaction();
+      }
+      realm.close();
+    } catch (Throwable throwable) {
+      RCLog.w(throwable);
+    }
+  }
+
+  private static class Job {
+    // for completing the tasks off the writer thread, so the continuations of the callers
+    // don't delay the next transactions.
+    private static final Executor COMPLETION_EXECUTOR = Task.BACKGROUND_EXECUTOR;
+
+    final RealmHelper.Transaction transaction;
+    final TaskCompletionSource<Void> task = new TaskCompletionSource<>();
+    // the continuations are called on the Looper of the caller if any, like
+    // Realm#executeTransactionAsync().
+    private final Handler handler;
+
+    Job(RealmHelper.Transaction transaction, Looper looper) {
+      this.transaction = transaction;
+      this.handler = looper != null ? new Handler(looper) : null;
+    }
+
+    void complete(Throwable error) {
+      Runnable completion = () -> {
+        if (error == null) {
+          task.setResult(null);
+        } else if (error instanceof Exception) {
+          task.setError((Exception) error);
+        } else {
+          task.setError(new Exception(error));
+        }
+      };
+      if (handler != null) {
+        handler.post(completion);
+      } else {
+        COMPLETION_EXECUTOR.execute(completion);
+      }
+    }
+  }
+}